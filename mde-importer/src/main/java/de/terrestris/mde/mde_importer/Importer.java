@@ -8,7 +8,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 @Command(name = "MDE Importer", version = "0.0.1", mixinStandardHelpOptions = true)
-public class Importer implements Callable<Boolean> {
+public class Importer implements Callable<Integer> {
 
   @Option(
       names = {"-d", "--directory"},
@@ -22,7 +22,7 @@ public class Importer implements Callable<Boolean> {
   }
 
   @Override
-  public Boolean call() throws Exception {
+  public Integer call() throws Exception {
     var ctx =
         new AnnotationConfigApplicationContext(
             "de.terrestris.mde.mde_backend.config",
@@ -31,6 +31,7 @@ public class Importer implements Callable<Boolean> {
             "de.terrestris.mde.mde_importer.importer");
     ctx.start();
     var service = ctx.getBean(ImportService.class);
-    return service.importMetadata(directory);
+    // a non-zero exit code tells scripts that metadata was skipped
+    return service.importMetadata(directory) ? 0 : 1;
   }
 }
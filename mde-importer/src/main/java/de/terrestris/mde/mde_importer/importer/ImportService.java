@@ -40,6 +40,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
@@ -76,6 +77,9 @@ public class ImportService {
 
   private static final Map<String, ColumnInfo.ColumnType> TYPE_MAP;
 
+  /** The number of metadata collections saved with one transaction and JDBC batch. */
+  private static final int SAVE_BATCH_SIZE = 50;
+
   static {
     FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
     TYPE_MAP = new HashMap<>();
@@ -154,6 +158,8 @@ public class ImportService {
     }
     var factory = XMLInputFactory.newFactory();
     var dir = Path.of(directory);
+    var pending = new ArrayList<MetadataCollection>();
+    var skipped = new ArrayList<String>();
     try (Stream<Path> files =
         Files.find(
             dir, 1, (path, attributes) -> path.getFileName().toString().startsWith("ISO_"))) {
@@ -165,7 +171,14 @@ public class ImportService {
             log.info("Importing from {}", file);
             try {
               var reader = factory.createXMLStreamReader(Files.newInputStream(file));
-              parseDatasetMetadata(reader);
+              var metadataCollection = parseDatasetMetadata(reader);
+              if (metadataCollection != null) {
+                pending.add(metadataCollection);
+              }
+              if (pending.size() >= SAVE_BATCH_SIZE) {
+                save(pending, skipped);
+                pending.clear();
+              }
             } catch (XMLStreamException | IOException | ParseException e) {
               log.warn("Error while importing metadata from file {}: {}", file, e.getMessage());
               log.trace("Stack trace", e);
@@ -177,8 +190,50 @@ public class ImportService {
       log.trace("Stack trace", e);
       throw new ImportException(e);
     }
+    save(pending, skipped);
     log.info("Unmapped terms of use: {}", TERMS_OF_USE_SET);
-    return true;
+    if (!skipped.isEmpty()) {
+      log.warn(
+          "{} metadata could not be imported, resolve the duplicates and import them again: {}",
+          skipped.size(),
+          skipped);
+    }
+    return skipped.isEmpty();
+  }
+
+  /**
+   * Saves the metadata collections with one transaction. If that violates a constraint, e.g. by a
+   * duplicate title, they are saved one by one, so only the offending ones are skipped.
+   *
+   * @param skipped the metadata ids and titles of the skipped metadata collections are added here
+   */
+  private void save(List<MetadataCollection> metadataCollections, List<String> skipped) {
+    try {
+      metadataCollectionRepository.saveAll(metadataCollections);
+      return;
+    } catch (DataIntegrityViolationException e) {
+      log.warn("Unable to save a batch of metadata, saving one by one: {}", e.getMessage());
+      log.trace("Stack trace", e);
+    }
+    for (var metadataCollection : metadataCollections) {
+      // the rolled back batch left the ids and versions assigned
+      metadataCollection.resetGeneratedValues();
+      try {
+        metadataCollectionRepository.save(metadataCollection);
+      } catch (DataIntegrityViolationException e) {
+        log.warn(
+            "Unable to save metadata {} with title {}: {}",
+            metadataCollection.getMetadataId(),
+            metadataCollection.getIsoMetadata().getTitle(),
+            e.getMessage());
+        log.trace("Stack trace", e);
+        skipped.add(
+            metadataCollection.getMetadataId()
+                + " ("
+                + metadataCollection.getIsoMetadata().getTitle()
+                + ")");
+      }
+    }
   }
 
   private void scanServices(String directory) throws IOException {
@@ -226,7 +281,12 @@ public class ImportService {
     }
   }
 
-  private void parseDatasetMetadata(XMLStreamReader reader)
+  /**
+   * Parses the dataset metadata and checks whether the record exists in the CSW.
+   *
+   * @return The metadata collection to save or null if the record was not found in the CSW.
+   */
+  private MetadataCollection parseDatasetMetadata(XMLStreamReader reader)
       throws XMLStreamException, ParseException {
     var metadataCollection = new MetadataCollection();
     metadataCollection.setStatus(Status.PUBLISHED);
@@ -320,7 +380,7 @@ public class ImportService {
         log.info(
             "Found record {} in CSW, saving it.",
             metadataCollection.getIsoMetadata().getFileIdentifier());
-        metadataCollectionRepository.save(metadataCollection);
+        return metadataCollection;
       } else {
         log.warn(
             "Record with id {} not found in CSW, not saving it.",
@@ -330,6 +390,7 @@ public class ImportService {
       log.error("Unable to check for record in CSW: {}", e.getMessage());
       log.trace("Stack trace:", e);
     }
+    return null;
   }
 
   private static void extractCoordinateSystem(XMLStreamReader reader, JsonIsoMetadata json)
@@ -54,7 +54,7 @@ import static io.restassured.RestAssured.given;
 public abstract class AbstractApiIT {
 
   @MockitoBean
-  SearchService searchService;
+  protected SearchService searchService;
 
   @TestConfiguration
   static class FlywayTestConfig {
@@ -0,0 +1,105 @@
+package de.terrestris.mde.metadata;
+
+import de.terrestris.mde.AbstractApiIT;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.service.IndexSyncService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Polls the index change log like an instance with the index synchronization enabled. The search
+ * service is mocked, so the tests check which metadata are passed on to be reindexed or purged.
+ */
+@DisplayName("Index Sync Integration Tests")
+class IndexSyncIT extends AbstractApiIT {
+
+  @Autowired
+  private IndexSyncService indexSyncService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private MetadataCollection metadataCollection;
+
+  @BeforeEach
+  void insertTestData() {
+    metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle("IndexSyncIT " + System.currentTimeMillis());
+    metadataCollection = metadataCollectionRepository.save(metadataCollection);
+    // starts the window of the polls and applies the insert
+    indexSyncService.poll();
+    clearInvocations(searchService);
+  }
+
+  @AfterEach
+  void cleanup() {
+    jdbcTemplate.update("DELETE FROM metadata_collection WHERE id = ?", metadataCollection.getId());
+  }
+
+  private void verifyReindexed(boolean reindexed) {
+    BigInteger id = metadataCollection.getId();
+    if (reindexed) {
+      verify(searchService).reindex(argThat(ids -> ids.contains(id)));
+    } else {
+      verify(searchService, never()).reindex(argThat(ids -> ids.contains(id)));
+    }
+    clearInvocations(searchService);
+  }
+
+  @Test
+  @DisplayName("A change committed after a poll is applied by the next poll, and only once")
+  void lateCommitIsAppliedOnce() throws InterruptedException {
+    CountDownLatch updated = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Void> update = CompletableFuture.runAsync(() ->
+        transactionTemplate.executeWithoutResult(status -> {
+          jdbcTemplate.update(
+              "UPDATE metadata_collection SET approved = true WHERE id = ?", metadataCollection.getId());
+          updated.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }));
+    assertTrue(updated.await(10, TimeUnit.SECONDS));
+
+    // logged before the poll, but not yet committed
+    indexSyncService.poll();
+    verifyReindexed(false);
+
+    release.countDown();
+    update.join();
+    indexSyncService.poll();
+    verifyReindexed(true);
+
+    // the entry is still within the window of the next poll, but applied already
+    indexSyncService.poll();
+    verifyReindexed(false);
+  }
+
+  @Test
+  @DisplayName("A deleted metadata collection is passed on to be purged from the index")
+  void deleteIsApplied() {
+    metadataCollectionRepository.deleteById(metadataCollection.getId());
+
+    indexSyncService.poll();
+    verifyReindexed(true);
+
+    indexSyncService.poll();
+    verifyReindexed(false);
+  }
+}
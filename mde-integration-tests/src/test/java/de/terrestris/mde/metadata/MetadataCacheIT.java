@@ -0,0 +1,105 @@
+package de.terrestris.mde.metadata;
+
+import de.terrestris.mde.AbstractApiIT;
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.enumeration.WorkflowOperation;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that native updates of metadata collections are seen by the persistence context and do
+ * not leave stale entries in the second-level cache.
+ */
+@DisplayName("Metadata Cache Integration Tests")
+class MetadataCacheIT extends AbstractApiIT {
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private MetadataCollection metadataCollection;
+
+  @BeforeEach
+  void insertTestData() {
+    metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle("CacheIT " + System.currentTimeMillis());
+    metadataCollection = metadataCollectionRepository.save(metadataCollection);
+  }
+
+  @AfterEach
+  void cleanup() {
+    metadataCollectionRepository.deleteById(metadataCollection.getId());
+  }
+
+  /** Loads the metadata collection in its own transaction, which puts it into the cache. */
+  private MetadataCollection load() {
+    return transactionTemplate.execute(status -> entityManager.find(MetadataCollection.class, metadataCollection.getId()));
+  }
+
+  @Test
+  @DisplayName("A native update is visible to later reads in the same transaction and in the cache")
+  void nativeUpdateIsVisible() {
+    String title = metadataCollection.getIsoMetadata().getTitle() + " updated";
+    assertNotNull(load());
+    assertTrue(entityManagerFactory.getCache().contains(MetadataCollection.class, metadataCollection.getId()));
+
+    transactionTemplate.executeWithoutResult(status -> {
+      // managed before the update, e.g. loaded by an earlier check
+      MetadataCollection managed = entityManager.find(MetadataCollection.class, metadataCollection.getId());
+
+      MetadataCollection updated = metadataCollectionRepository
+          .updateJsonValues(metadataCollection.getMetadataId(), 0L,
+              List.of(new JsonPathUpdate(MetadataType.ISO, List.of("title"), "\"" + title + "\"")))
+          .orElseThrow();
+
+      assertSame(managed, updated);
+      assertEquals(title, updated.getIsoMetadata().getTitle());
+      assertEquals(1L, updated.getVersion());
+      MetadataCollection reread = entityManager.find(MetadataCollection.class, metadataCollection.getId());
+      assertEquals(title, reread.getIsoMetadata().getTitle());
+      assertEquals(1L, reread.getVersion());
+    });
+
+    MetadataCollection cached = load();
+    assertEquals(title, cached.getIsoMetadata().getTitle());
+    assertEquals(1L, cached.getVersion());
+    assertTrue(cached.getModified().isAfter(metadataCollection.getModified()));
+  }
+
+  @Test
+  @DisplayName("Native workflow updates evict the metadata collection from the cache")
+  void nativeWorkflowUpdatesEvict() {
+    Cache cache = entityManagerFactory.getCache();
+    assertNotNull(load());
+    assertTrue(cache.contains(MetadataCollection.class, metadataCollection.getId()));
+
+    transactionTemplate.executeWithoutResult(status ->
+        metadataCollectionRepository.updateApproved(metadataCollection.getMetadataId(), 0L, true).orElseThrow());
+
+    assertFalse(cache.contains(MetadataCollection.class, metadataCollection.getId()));
+    assertEquals(true, load().getApproved());
+    assertTrue(cache.contains(MetadataCollection.class, metadataCollection.getId()));
+
+    transactionTemplate.executeWithoutResult(status ->
+        metadataCollectionRepository.updateWorkflows(List.of(metadataCollection.getMetadataId()),
+            WorkflowOperation.ADD_TO_TEAM, "cache-it-user", null, null, false));
+
+    assertFalse(cache.contains(MetadataCollection.class, metadataCollection.getId()));
+    MetadataCollection cached = load();
+    assertEquals(Set.of("cache-it-user"), cached.getTeamMemberIds());
+    assertEquals(2L, cached.getVersion());
+  }
+}
@@ -1,19 +1,32 @@
 package de.terrestris.mde.metadata;
 
 import de.terrestris.mde.AbstractApiIT;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
 import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
 import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @DisplayName("Metadata Content Integration Tests")
 class MetadataContentIT extends AbstractApiIT {
 
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
   private String metadataId;
   private String editorToken;
   private String adminToken;
@@ -92,6 +105,68 @@ class MetadataContentIT extends AbstractApiIT {
           .body("isoMetadata.description", equalTo(newDescription));
     }
 
+    @Test
+    @DisplayName("Multiple form fields can be updated in one request")
+    void multipleFieldUpdatesInOneRequest() {
+      String newTitle = "Batch Title - " + System.currentTimeMillis();
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(List.of(
+              Map.of("type", "ISO", "key", "title", "value", newTitle),
+              Map.of("type", "ISO", "key", "description", "value", "Batch description"),
+              Map.of("type", "TECHNICAL", "key", "deliveredCrs", "value", "EPSG:25833")))
+          .patch("/metadata/" + metadataId + "/batch")
+          .then()
+          .statusCode(200)
+          .body("isoMetadata.title", equalTo(newTitle))
+          .body("isoMetadata.description", equalTo("Batch description"))
+          .body("technicalMetadata.deliveredCrs", equalTo("EPSG:25833"))
+          .body("approved", equalTo(false));
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/" + metadataId)
+          .then()
+          .statusCode(200)
+          .body("title", equalTo(newTitle))
+          .body("isoMetadata.description", equalTo("Batch description"));
+    }
+
+    @Test
+    @DisplayName("Invalid changes in one request are rejected without updating anything")
+    void invalidFieldUpdatesInOneRequestAreRejected() {
+      String newTitle = "Invalid Batch Title - " + System.currentTimeMillis();
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(List.of(
+              Map.of("type", "ISO", "key", "title", "value", newTitle),
+              Map.of("type", "ISO", "value", "Missing key")))
+          .patch("/metadata/" + metadataId + "/batch")
+          .then()
+          .statusCode(400);
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(List.of(
+              Map.of("type", "ISO", "key", "title", "value", newTitle),
+              Map.of("type", "ISO", "key", "extent", "value", "not an extent")))
+          .patch("/metadata/" + metadataId + "/batch")
+          .then()
+          .statusCode(400);
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/" + metadataId)
+          .then()
+          .statusCode(200)
+          .body("title", not(equalTo(newTitle)));
+    }
+
     @Test
     @DisplayName("Metadata profile field can be updated")
     void canUpdateMetadataProfile() {
@@ -263,6 +338,132 @@ class MetadataContentIT extends AbstractApiIT {
     }
   }
 
+  @Nested
+  @DisplayName("JSON Patch Updates")
+  class JsonPatchTests {
+
+    @BeforeEach
+    void init() {
+      metadataId = createMetadata(editorToken);
+    }
+
+    @Test
+    @DisplayName("Nested values can be patched")
+    void patchNestedValue() {
+      Map<String, Object> service = Map.of(
+          "id", UUID.randomUUID().toString(),
+          "workspace", "workspace1",
+          "title", "Patch Service",
+          "serviceType", "WFS");
+
+      patchIso("services", List.of(service), editorToken, metadataId);
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType("application/json-patch+json")
+          .body("""
+              [
+                { "op": "test", "path": "/isoMetadata/services/0/title", "value": "Patch Service" },
+                { "op": "replace", "path": "/isoMetadata/services/0/title", "value": "Patched Service" },
+                { "op": "add", "path": "/isoMetadata/description", "value": "Patched description" }
+              ]
+              """)
+          .patch("/metadata/" + metadataId)
+          .then()
+          .statusCode(200)
+          .body("isoMetadata.services[0].title", equalTo("Patched Service"))
+          .body("isoMetadata.services[0].workspace", equalTo("workspace1"))
+          .body("isoMetadata.description", equalTo("Patched description"));
+    }
+
+    @Test
+    @DisplayName("Failing test operation rejects the patch")
+    void failingTestRejectsPatch() {
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType("application/json-patch+json")
+          .body("""
+              [
+                { "op": "test", "path": "/isoMetadata/title", "value": "Some other title" },
+                { "op": "replace", "path": "/isoMetadata/title", "value": "Never applied" }
+              ]
+              """)
+          .patch("/metadata/" + metadataId)
+          .then()
+          .statusCode(409);
+    }
+
+    @Test
+    @DisplayName("Pointers outside of the documents are rejected")
+    void invalidPointerIsRejected() {
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType("application/json-patch+json")
+          .body("""
+              [
+                { "op": "replace", "path": "/status", "value": "PUBLISHED" }
+              ]
+              """)
+          .patch("/metadata/" + metadataId)
+          .then()
+          .statusCode(400);
+    }
+  }
+
+  @Nested
+  @DisplayName("Optimistic Locking")
+  class OptimisticLockingTests {
+
+    @BeforeEach
+    void init() {
+      metadataId = createMetadata(editorToken);
+    }
+
+    private String patchDescription(String ifMatch, int expectedStatus) {
+      return given()
+          .header("Authorization", "Bearer " + editorToken)
+          .header("If-Match", ifMatch)
+          .contentType(ContentType.JSON)
+          .body(Map.of("type", "ISO", "key", "description", "value", "Versioned description"))
+          .patch("/metadata/" + metadataId)
+          .then()
+          .statusCode(expectedStatus)
+          .extract()
+          .header("ETag");
+    }
+
+    @Test
+    @DisplayName("Updates with the current ETag are accepted")
+    void currentVersionIsAccepted() {
+      String eTag = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/" + metadataId)
+          .then()
+          .statusCode(200)
+          .header("ETag", notNullValue())
+          .extract()
+          .header("ETag");
+
+      String updatedETag = patchDescription(eTag, 200);
+
+      Assertions.assertNotEquals(eTag, updatedETag);
+    }
+
+    @Test
+    @DisplayName("Updates with an outdated ETag are rejected")
+    void outdatedVersionIsRejected() {
+      String eTag = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/" + metadataId)
+          .then()
+          .extract()
+          .header("ETag");
+
+      patchDescription(eTag, 200);
+      patchDescription(eTag, 412);
+    }
+  }
+
   @Nested
   @DisplayName("Client Metadata Updates")
   class ClientMetadataTests {
@@ -504,6 +705,29 @@ class MetadataContentIT extends AbstractApiIT {
   @DisplayName("Clone Operations")
   class CloneTests {
 
+    @Test
+    @DisplayName("Cloning with an existing title is rejected with CONFLICT")
+    void cloningWithDuplicateTitleIsRejected() {
+      String title = "Clone Title - " + System.currentTimeMillis();
+      metadataId = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body("{\"title\": \"" + title + "\"}")
+          .post("/metadata/")
+          .then()
+          .statusCode(200)
+          .extract()
+          .path("metadataId");
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body("{\"title\": \"" + title + "\", \"cloneMetadataId\": \"" + metadataId + "\"}")
+          .post("/metadata/")
+          .then()
+          .statusCode(409);
+    }
+
     @Test
     @DisplayName("Metadata cloning duplicates expected content and creates independent copy")
     void cloningCreatesIndependentDuplicate() {
@@ -534,7 +758,12 @@ class MetadataContentIT extends AbstractApiIT {
           .body("isoMetadata.identifier", equalTo(clonedId))
           .body("isoMetadata.metadataProfile", equalTo("INSPIRE_IDENTIFIED"))
           .body("isoMetadata.title", equalTo("Cloned Metadata"))
-          .body("isoMetadata.description", nullValue());
+          .body("isoMetadata.description", nullValue())
+          .body("isoMetadata.valid", equalTo(false))
+          .body("status", equalTo("NEW"))
+          .body("ownerId", equalTo(extractSubFromToken(editorToken)))
+          .body("assignedUserId", equalTo(extractSubFromToken(editorToken)))
+          .body("teamMemberIds", contains(extractSubFromToken(editorToken)));
 
       given()
           .header("Authorization", "Bearer " + adminToken)
@@ -548,5 +777,169 @@ class MetadataContentIT extends AbstractApiIT {
           .then()
           .log().status();
     }
+
+    @Test
+    @DisplayName("Rollover clones metadata in the background and only selects missing clones when started again")
+    void rolloverClonesMetadataOnce() {
+      String title = "Rollover Test " + System.currentTimeMillis();
+      String metadataId = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body("{\"title\": \"" + title + "\"}")
+          .post("/metadata/")
+          .then()
+          .statusCode(200)
+          .extract()
+          .path("metadataId");
+
+      String rollover = "{\"metadataIds\": [\"" + metadataId + "\"], \"titlePattern\": \"{title} 2099\"}";
+
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body("{\"metadataIds\": [\"" + metadataId + "\"], \"titlePattern\": \"2099\"}")
+          .post("/metadata/rollover")
+          .then()
+          .statusCode(400);
+
+      // the second run finds the clone of the first one and has nothing left to do
+      for (int expectedClones = 1; expectedClones >= 0; expectedClones--) {
+        runRollover(rollover)
+            .body("total", equalTo(expectedClones))
+            .body("cloned", equalTo(expectedClones))
+            .body("skipped", equalTo(0));
+      }
+
+      List<String> cloneIds = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(Map.of("searchTerm", title + " 2099"))
+          .post("/metadata/query")
+          .then()
+          .statusCode(200)
+          .extract()
+          .path("content.metadataId");
+
+      for (String cloneId : cloneIds) {
+        given()
+            .header("Authorization", "Bearer " + adminToken)
+            .delete("/metadata/" + cloneId)
+            .then()
+            .log().status();
+      }
+
+      given()
+          .header("Authorization", "Bearer " + adminToken)
+          .delete("/metadata/" + metadataId)
+          .then()
+          .log().status();
+    }
+
+    @Test
+    @DisplayName("Rollover clones only the first of several metadata mapping to the same title")
+    void rolloverSkipsCollidingTitlesInOneBatch() {
+      // without a title both clones get the title pattern without the placeholder
+      MetadataCollection first = metadataCollectionRepository.save(new MetadataCollection(UUID.randomUUID().toString()));
+      MetadataCollection second = metadataCollectionRepository.save(new MetadataCollection(UUID.randomUUID().toString()));
+      String cloneTitle = "Rollover Collision " + System.currentTimeMillis();
+
+      runRollover("{\"metadataIds\": [\"" + first.getMetadataId() + "\", \"" + second.getMetadataId()
+          + "\"], \"titlePattern\": \"{title}" + cloneTitle + "\"}")
+          .body("total", equalTo(2))
+          .body("cloned", equalTo(1))
+          .body("skipped", equalTo(1));
+
+      List<MetadataCollection> clones = metadataCollectionRepository.findByClonedFromId(first.getMetadataId());
+      assertEquals(1, clones.size());
+      assertEquals(cloneTitle, clones.getFirst().getIsoMetadata().getTitle());
+      assertTrue(metadataCollectionRepository.findByClonedFromId(second.getMetadataId()).isEmpty());
+
+      metadataCollectionRepository.deleteAll(clones);
+      metadataCollectionRepository.deleteAll(List.of(first, second));
+    }
+
+    @Test
+    @DisplayName("Rollover waits for a concurrent create of a clone title and skips it")
+    void rolloverWaitsForConcurrentCreateOfCloneTitle() throws InterruptedException {
+      MetadataCollection source = new MetadataCollection(UUID.randomUUID().toString());
+      source.getIsoMetadata().setTitle("Rollover Race " + System.currentTimeMillis());
+      source = metadataCollectionRepository.save(source);
+      String cloneTitle = source.getIsoMetadata().getTitle() + " 2099";
+
+      // a create of the clone title, which has checked the title but not yet committed
+      CountDownLatch locked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      CompletableFuture<MetadataCollection> create = CompletableFuture.supplyAsync(() ->
+          transactionTemplate.execute(status -> {
+            metadataCollectionRepository.lockValue("title:" + cloneTitle);
+            locked.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+            MetadataCollection created = new MetadataCollection(UUID.randomUUID().toString());
+            created.getIsoMetadata().setTitle(cloneTitle);
+            return metadataCollectionRepository.save(created);
+          }));
+      assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+      startRollover("{\"metadataIds\": [\"" + source.getMetadataId() + "\"], \"titlePattern\": \"{title} 2099\"}");
+      await()
+          .during(2, TimeUnit.SECONDS)
+          .atMost(5, TimeUnit.SECONDS)
+          .until(() -> "RUNNING".equals(rolloverStatus()));
+      release.countDown();
+      MetadataCollection created = create.join();
+
+      awaitRollover()
+          .body("total", equalTo(1))
+          .body("cloned", equalTo(0))
+          .body("skipped", equalTo(1));
+      assertTrue(metadataCollectionRepository.findByClonedFromId(source.getMetadataId()).isEmpty());
+
+      metadataCollectionRepository.deleteAll(List.of(created, source));
+    }
+
+    /** Starts a rollover, waits for it to end and returns the checked status of the finished job. */
+    private ValidatableResponse runRollover(String rollover) {
+      startRollover(rollover);
+      return awaitRollover();
+    }
+
+    private void startRollover(String rollover) {
+      given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(rollover)
+          .post("/metadata/rollover")
+          .then()
+          .statusCode(202);
+    }
+
+    private String rolloverStatus() {
+      return given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/rollover/status")
+          .then()
+          .statusCode(200)
+          .extract()
+          .path("status");
+    }
+
+    /** Waits for the rollover to end and returns the checked status of the finished job. */
+    private ValidatableResponse awaitRollover() {
+      await()
+          .atMost(30, TimeUnit.SECONDS)
+          .pollInterval(500, TimeUnit.MILLISECONDS)
+          .until(() -> !"RUNNING".equals(rolloverStatus()));
+
+      return given()
+          .header("Authorization", "Bearer " + editorToken)
+          .get("/metadata/rollover/status")
+          .then()
+          .statusCode(200)
+          .body("status", equalTo("FINISHED"));
+    }
   }
 }
@@ -0,0 +1,506 @@
+package de.terrestris.mde.metadata;
+
+import de.terrestris.mde.AbstractApiIT;
+import de.terrestris.mde.mde_backend.enumeration.QueryEngine;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.Status;
+import de.terrestris.mde.mde_backend.model.dto.QueryConfig;
+import de.terrestris.mde.mde_backend.model.json.Extent;
+import de.terrestris.mde.mde_backend.model.json.Keyword;
+import de.terrestris.mde.mde_backend.properties.QueryProperties;
+import de.terrestris.mde.mde_backend.service.MetadataExportService;
+import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Queries metadata collections saved through the repository, so they are indexed like metadata
+ * edited in the application.
+ */
+@DisplayName("Metadata Query Integration Tests")
+class MetadataQueryIT extends AbstractApiIT {
+
+  @Autowired
+  private QueryProperties queryProperties;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private final List<MetadataCollection> saved = new ArrayList<>();
+
+  private String editorToken;
+
+  private String prefix;
+
+  private String alpha;
+  private String beta;
+  private String gamma;
+  private String delta;
+  private String epsilon;
+
+  @BeforeEach
+  void insertTestData() {
+    editorToken = getTokenForUser("editor-user", "password");
+    String editorId = extractSubFromToken(editorToken);
+    String ownerId = extractSubFromToken(getTokenForUser("owner-user", "password"));
+    prefix = "QueryIT " + System.currentTimeMillis();
+
+    // saved one after the other, so beta is modified last
+    alpha = save(prefix + " Alpha", editorId, true, Status.IN_EDIT, Role.MdeEditor, editorId);
+    beta = save(prefix + " Beta", editorId, false, Status.NEW, Role.MdeEditor, editorId);
+    gamma = save(prefix + " Gamma", ownerId, true, Status.PUBLISHED, Role.MdeQualityAssurance, editorId, ownerId);
+    delta = save(prefix + " Delta", null, false, Status.NEW, null);
+    epsilon = save(prefix + " Epsilon", null, true, Status.PUBLISHED, Role.MdeDataOwner);
+  }
+
+  @AfterEach
+  void cleanup() {
+    metadataCollectionRepository.deleteAll(saved);
+    saved.clear();
+  }
+
+  private String save(
+      String title, String assignedUserId, boolean approved, Status status, Role role, String... teamMemberIds) {
+    MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle(title);
+    metadataCollection.setAssignedUserId(assignedUserId);
+    metadataCollection.setApproved(approved);
+    metadataCollection.setStatus(status);
+    metadataCollection.setResponsibleRole(role);
+    metadataCollection.setTeamMemberIds(new HashSet<>(Arrays.asList(teamMemberIds)));
+    saved.add(metadataCollectionRepository.save(metadataCollection));
+    return metadataCollection.getMetadataId();
+  }
+
+  private String save(String title, String description) {
+    MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle(title);
+    metadataCollection.getIsoMetadata().setDescription(description);
+    metadataCollection.setStatus(Status.NEW);
+    saved.add(metadataCollectionRepository.save(metadataCollection));
+    return metadataCollection.getMetadataId();
+  }
+
+  private String save(String title, Extent extent) {
+    MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle(title);
+    metadataCollection.getIsoMetadata().setExtent(extent);
+    metadataCollection.setStatus(Status.NEW);
+    saved.add(metadataCollectionRepository.save(metadataCollection));
+    return metadataCollection.getMetadataId();
+  }
+
+  private static Map<String, Object> extentConfig(
+      String searchTerm, String spatialRelation, double minx, double miny, double maxx, double maxy) {
+    return Map.of(
+        "searchTerm", searchTerm,
+        "spatialRelation", spatialRelation,
+        "extent", Map.of("minx", minx, "miny", miny, "maxx", maxx, "maxy", maxy));
+  }
+
+  private List<String> query(Map<String, Object> config, int page, int size) {
+    return given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(config)
+        .queryParam("page", page)
+        .queryParam("size", size)
+        .post("/metadata/query")
+        .then()
+        .statusCode(200)
+        .extract()
+        .path("content.metadataId");
+  }
+
+  @Test
+  @DisplayName("Query results are ordered by assignment, team membership and title and paginated")
+  void queryOrdersAndPaginates() {
+    Map<String, Object> config = Map.of("searchTerm", prefix.toLowerCase());
+
+    // assigned to me by modification (newest first), then team member, then the others by title
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(config)
+        .queryParam("size", 2)
+        .post("/metadata/query")
+        .then()
+        .statusCode(200)
+        .body("content.metadataId", contains(beta, alpha))
+        .body("content.title", contains(prefix + " Beta", prefix + " Alpha"))
+        .body("content.assignedToMe", contains(true, true))
+        .body("totalElements", equalTo(5));
+
+    assertEquals(List.of(gamma, delta), query(config, 1, 2));
+    assertEquals(List.of(epsilon), query(config, 2, 2));
+    assertEquals(List.of(beta, alpha, gamma, delta, epsilon), query(config, 0, 50));
+  }
+
+  @Test
+  @DisplayName("Paging with the cursor returns the same rows as paging with offsets")
+  void cursorPagingMatchesOffsetPaging() {
+    String editorId = extractSubFromToken(editorToken);
+    // rows without title sort equally by title, legacy rows have no modification date
+    List<String> legacy = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      save(null, editorId, false, Status.NEW, null);
+      legacy.add(save(null, editorId, false, Status.NEW, null));
+      legacy.add(save(null, null, false, Status.NEW, null));
+    }
+    jdbcTemplate.update(
+        "UPDATE metadata_collection SET modified = NULL WHERE metadata_id = ANY(?)",
+        (Object) legacy.toArray(String[]::new));
+
+    List<String> byCursor = new ArrayList<>();
+    String cursor = "";
+    while (cursor != null) {
+      ExtractableResponse<Response> page = given()
+          .header("Authorization", "Bearer " + editorToken)
+          .contentType(ContentType.JSON)
+          .body(Map.of())
+          .queryParam("cursor", cursor)
+          .queryParam("size", 3)
+          .post("/metadata/query")
+          .then()
+          .statusCode(200)
+          .extract();
+      byCursor.addAll(page.path("content.metadataId"));
+      cursor = page.path("nextCursor");
+    }
+
+    // the offset path of the database query engine
+    Specification<MetadataCollection> specification =
+        MetadataCollectionSpecification.searchMetadata(new QueryConfig(), editorId);
+    List<String> byOffset = new ArrayList<>();
+    Page<MetadataCollection> page;
+    int number = 0;
+    do {
+      page = metadataCollectionRepository.findAll(specification, PageRequest.of(number++, 3));
+      page.forEach(metadataCollection -> byOffset.add(metadataCollection.getMetadataId()));
+    } while (page.hasNext());
+
+    assertEquals(byOffset, byCursor);
+    assertTrue(byCursor.containsAll(legacy));
+  }
+
+  @Test
+  @DisplayName("Query results are filtered by approval, assignment, team membership and role")
+  void queryFilters() {
+    assertEquals(
+        List.of(alpha, gamma, epsilon),
+        query(Map.of("searchTerm", prefix, "isApproved", true), 0, 50));
+    assertEquals(
+        List.of(beta, alpha, gamma),
+        query(Map.of("searchTerm", prefix, "isTeamMember", true), 0, 50));
+    assertEquals(
+        List.of(gamma),
+        query(Map.of("searchTerm", prefix, "isAssignedToMe", false), 0, 50));
+    assertEquals(
+        List.of(epsilon),
+        query(Map.of("searchTerm", prefix, "assignedRoles", List.of("MdeDataOwner")), 0, 50));
+    assertEquals(
+        List.of(),
+        query(Map.of("searchTerm", prefix + " Zeta"), 0, 50));
+  }
+
+  @ParameterizedTest
+  @EnumSource(QueryEngine.class)
+  @DisplayName("Query results are filtered by the intersection with or the containment in an extent")
+  void queryFiltersByExtent(QueryEngine engine) {
+    String search = prefix + " Extent";
+    String west = save(search + " A West", new Extent("EPSG:4326", 0.0, 0.0, 10.0, 10.0));
+    String inner = save(search + " B Inner", new Extent("EPSG:4326", 2.0, 2.0, 3.0, 3.0));
+    String east = save(search + " C East", new Extent("EPSG:4326", 20.0, 20.0, 30.0, 30.0));
+    String incomplete = save(search + " D Incomplete", new Extent("EPSG:4326", 1.0, 1.0, null, null));
+
+    // an incomplete extent has no bounding box and never matches
+    assertEquals(
+        Boolean.TRUE,
+        jdbcTemplate.queryForObject(
+            "SELECT extent_box IS NULL FROM metadata_collection WHERE metadata_id = ?", Boolean.class, incomplete));
+
+    QueryEngine previous = queryProperties.getEngine();
+    queryProperties.setEngine(engine);
+    try {
+      assertEquals(
+          List.of(west, inner),
+          query(extentConfig(search, "INTERSECTS", 1, 1, 12, 12), 0, 50));
+      assertEquals(
+          List.of(west, inner, east),
+          query(extentConfig(search, "INTERSECTS", -180, -90, 180, 90), 0, 50));
+      // touching edges intersect
+      assertEquals(
+          List.of(east),
+          query(extentConfig(search, "INTERSECTS", 30, 30, 40, 40), 0, 50));
+      assertEquals(
+          List.of(inner),
+          query(extentConfig(search, "WITHIN", 1, 1, 12, 12), 0, 50));
+      assertEquals(
+          List.of(west, inner),
+          query(extentConfig(search, "WITHIN", -1, -1, 11, 11), 0, 50));
+      assertEquals(
+          List.of(),
+          query(extentConfig(search, "WITHIN", 40, 40, 50, 50), 0, 50));
+      // without extent the incomplete one is found as well
+      assertEquals(
+          List.of(west, inner, east, incomplete),
+          query(Map.of("searchTerm", search), 0, 50));
+    } finally {
+      queryProperties.setEngine(previous);
+    }
+  }
+
+  @Test
+  @DisplayName("The extent filters of the database query engine use the spatial index")
+  void extentFilterUsesSpatialIndex() {
+    // the predicates rendered by MdeFunctionContributor, sequential scans are preferred for small tables
+    for (String predicate : List.of(
+        "(extent_box && box(point(1, 1), point(12, 12)))",
+        "(extent_box <@ box(point(1, 1), point(12, 12)))")) {
+      List<String> plan = transactionTemplate.execute(status -> {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        return jdbcTemplate.queryForList(
+            "EXPLAIN SELECT id FROM metadata_collection WHERE " + predicate, String.class);
+      });
+      assertTrue(
+          String.join("\n", plan).contains("idx_metadata_collection_extent_box"),
+          predicate + " does not use the spatial index: " + plan);
+    }
+  }
+
+  @Test
+  @DisplayName("Facets count the matching metadata per status, approval, assignment, team and role")
+  void facetsCountMatchingMetadata() {
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(Map.of("searchTerm", prefix))
+        .post("/metadata/facets")
+        .then()
+        .statusCode(200)
+        .body("total", equalTo(5))
+        .body("status.NEW", equalTo(2))
+        .body("status.IN_EDIT", equalTo(1))
+        .body("status.PUBLISHED", equalTo(2))
+        .body("approved", equalTo(3))
+        .body("assignedToMe", equalTo(2))
+        .body("teamMember", equalTo(3))
+        .body("responsibleRole.MdeEditor", equalTo(2))
+        .body("responsibleRole.MdeQualityAssurance", equalTo(1))
+        .body("responsibleRole.MdeDataOwner", equalTo(1))
+        .body("responsibleRole.MdeAdministrator", equalTo(0));
+
+    // the facets respect the filters of the query
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(Map.of("searchTerm", prefix, "isApproved", true))
+        .post("/metadata/facets")
+        .then()
+        .statusCode(200)
+        .body("total", equalTo(3))
+        .body("status.NEW", equalTo(0))
+        .body("status.PUBLISHED", equalTo(2))
+        .body("approved", equalTo(3))
+        .body("assignedToMe", equalTo(1))
+        .body("teamMember", equalTo(2));
+  }
+
+  private String export(Map<String, Object> config, String format, String... fields) {
+    return given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(config)
+        .queryParam("format", format)
+        .queryParam("fields", (Object[]) fields)
+        .post("/metadata/export")
+        .then()
+        .statusCode(200)
+        .header("Content-Disposition", containsString("metadata." + format))
+        .extract()
+        .asString();
+  }
+
+  @Test
+  @DisplayName("The export streams the filtered metadata as NDJSON with the requested fields flattened")
+  void exportNdjson() {
+    Map<String, Object> config = Map.of("searchTerm", prefix, "isApproved", true);
+
+    List<Map<String, Object>> rows = export(config, "ndjson", "metadataId", "isoMetadata.title", "isoMetadata.extent.minx")
+        .lines()
+        .map(line -> JsonPath.from(line).<String, Object>getMap("$"))
+        .toList();
+    // in the order of the query endpoint
+    assertEquals(List.of(alpha, gamma, epsilon), rows.stream().map(row -> row.get("metadataId")).toList());
+    Map<String, Object> row = rows.getFirst();
+    assertEquals(3, row.size());
+    assertEquals(prefix + " Alpha", row.get("isoMetadata.title"));
+    // missing values are exported as null
+    assertTrue(row.containsKey("isoMetadata.extent.minx"));
+    assertNull(row.get("isoMetadata.extent.minx"));
+
+    // without fields the complete metadata collections are exported
+    List<String> lines = export(config, "ndjson").lines().toList();
+    assertEquals(3, lines.size());
+    assertEquals(alpha, JsonPath.from(lines.getFirst()).getString("metadataId"));
+    assertEquals(prefix + " Alpha", JsonPath.from(lines.getFirst()).getString("isoMetadata.title"));
+  }
+
+  @Test
+  @DisplayName("The export streams the filtered metadata as CSV with the default or the requested fields")
+  void exportCsv() {
+    String quoted = save(prefix + " Zeta, \"quoted\"", null);
+
+    List<String> lines = List.of(
+        export(Map.of("searchTerm", prefix, "isApproved", true), "csv").split("\r\n"));
+    assertEquals(String.join(",", MetadataExportService.DEFAULT_CSV_FIELDS), lines.getFirst());
+    assertEquals(4, lines.size());
+    assertTrue(lines.get(1).startsWith(alpha + "," + prefix + " Alpha,IN_EDIT,true,"), lines.get(1));
+    assertTrue(lines.get(2).startsWith(gamma + ","), lines.get(2));
+    assertTrue(lines.get(3).startsWith(epsilon + ","), lines.get(3));
+
+    // values containing commas or quotes are quoted
+    assertEquals(
+        List.of("metadataId,isoMetadata.title", quoted + ",\"" + prefix + " Zeta, \"\"quoted\"\"\""),
+        List.of(export(Map.of("searchTerm", prefix + " Zeta"), "csv", "metadataId", "isoMetadata.title").split("\r\n")));
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(Map.of())
+        .queryParam("format", "csv")
+        .queryParam("fields", "isoMetadata/title")
+        .post("/metadata/export")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  @DisplayName("Full text search finds German compounds and inflections and ranks title matches first")
+  void fullTextSearch() {
+    String riskTitle = save(prefix + " Risiko", null);
+    String riskDescription = save(prefix + " Karte", "Karte der Hochwasserrisikogebiete in Berlin");
+    String flooding = save(prefix + " Spree", "Überschwemmungsflächen der Spree");
+
+    // "risiko" is a part of the compound in the description, the title match is boosted
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", "Risiko")
+        .get("/metadata/search")
+        .then()
+        .statusCode(200)
+        .body("content.summary.metadataId", contains(riskTitle, riskDescription))
+        .body("content[0].highlights.title", contains(prefix + " <em>Risiko</em>"))
+        .body("content[1].highlights.description", contains(containsString("<em>Hochwasserrisikogebiete</em>")))
+        .body("totalElements", equalTo(2));
+
+    // umlauts are folded and the plural is reduced to the same stem
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", "Uberschwemmungsflache")
+        .get("/metadata/search")
+        .then()
+        .statusCode(200)
+        .body("content.summary.metadataId", contains(flooding))
+        .body("content[0].highlights.description", contains(endsWith("</em> der Spree")));
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", " ")
+        .get("/metadata/search")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  @DisplayName("Suggestions complete prefixes longer than the indexed prefixes")
+  void suggestionsCompleteLongPrefixes() {
+    String title = prefix + " Hochwasserrisikomanagementgebiete";
+    String keyword = "Überschwemmungsgebietsverordnung " + prefix.substring("QueryIT ".length());
+    MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+    metadataCollection.getIsoMetadata().setTitle(title);
+    metadataCollection.getIsoMetadata().setKeywords(Map.of("default", List.of(new Keyword(null, keyword))));
+    metadataCollection.setStatus(Status.NEW);
+    saved.add(metadataCollectionRepository.save(metadataCollection));
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", prefix + " hochwasserrisikomanagementgebie")
+        .get("/metadata/suggest")
+        .then()
+        .statusCode(200)
+        .body("titles", contains(title));
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", "uberschwemmungsgebietsverord " + prefix.substring("QueryIT ".length()))
+        .get("/metadata/suggest")
+        .then()
+        .statusCode(200)
+        .body("keywords", contains(keyword));
+  }
+
+  @Test
+  @DisplayName("Keyword suggestions contain only matching keywords, ranked by the number of metadata using them")
+  void keywordSuggestionsRankMatchingKeywords() {
+    String suffix = prefix.substring("QueryIT ".length());
+    String common = "Gewässer " + suffix;
+    String rare = "Gewässergüte " + suffix;
+    for (int i = 0; i < 3; i++) {
+      List<Keyword> keywords = new ArrayList<>();
+      // many keywords not matching the input
+      for (int k = 0; k < 50; k++) {
+        keywords.add(new Keyword(null, "Thema " + i + "-" + k + " " + suffix));
+      }
+      keywords.add(new Keyword(null, common));
+      if (i == 0) {
+        keywords.add(new Keyword(null, rare));
+      }
+      MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+      metadataCollection.getIsoMetadata().setTitle(prefix + " Keywords " + i);
+      metadataCollection.getIsoMetadata().setKeywords(Map.of("default", keywords));
+      metadataCollection.setStatus(Status.NEW);
+      saved.add(metadataCollectionRepository.save(metadataCollection));
+    }
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", "gewass " + suffix)
+        .get("/metadata/suggest")
+        .then()
+        .statusCode(200)
+        .body("keywords", contains(common, rare));
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .queryParam("q", "gewasserg " + suffix)
+        .get("/metadata/suggest")
+        .then()
+        .statusCode(200)
+        .body("keywords", contains(rare));
+  }
+}
@@ -175,6 +175,116 @@ class MetadataWorkflowIT extends AbstractApiIT {
         .statusCode(409);
   }
 
+  @Test
+  @DisplayName("Workflow operations return the new version as ETag")
+  void workflowOperationsReturnETag() {
+    metadataId = createMetadata(adminToken);
+    String eTag = given()
+        .header("Authorization", "Bearer " + adminToken)
+        .get("/metadata/" + metadataId)
+        .then()
+        .statusCode(200)
+        .extract()
+        .header("ETag");
+
+    String assignedETag = given()
+        .header("Authorization", "Bearer " + adminToken)
+        .header("If-Match", eTag)
+        .contentType(ContentType.JSON)
+        .body("\"" + extractSubFromToken(editorToken) + "\"")
+        .post("/metadata/" + metadataId + "/assignUser")
+        .then()
+        .statusCode(200)
+        .header("ETag", allOf(notNullValue(), not(equalTo(eTag))))
+        .extract()
+        .header("ETag");
+
+    String approvedETag = given()
+        .header("Authorization", "Bearer " + qaToken)
+        .header("If-Match", assignedETag)
+        .post("/metadata/" + metadataId + "/approved")
+        .then()
+        .statusCode(200)
+        .header("ETag", allOf(notNullValue(), not(equalTo(assignedETag))))
+        .extract()
+        .header("ETag");
+
+    // the returned ETag is the current version of the metadata
+    given()
+        .header("Authorization", "Bearer " + adminToken)
+        .get("/metadata/" + metadataId)
+        .then()
+        .statusCode(200)
+        .header("ETag", equalTo(approvedETag));
+
+    given()
+        .header("Authorization", "Bearer " + qaToken)
+        .header("If-Match", assignedETag)
+        .delete("/metadata/" + metadataId + "/approved")
+        .then()
+        .statusCode(412);
+  }
+
+  @Test
+  @DisplayName("Bulk workflow operations report the result per metadata")
+  void bulkWorkflowOperations() {
+    metadataId = given()
+        .header("Authorization", "Bearer " + adminToken)
+        .contentType(ContentType.JSON)
+        .body("{\"title\": \"Bulk Test " + System.currentTimeMillis() + "\"}")
+        .post("/metadata/")
+        .then()
+        .statusCode(200)
+        .extract().path("metadataId");
+
+    String bulkApproval = "{\"operation\": \"APPROVE\", \"metadataIds\": [\"" + metadataId + "\", \"does-not-exist\"]}";
+
+    given()
+        .header("Authorization", "Bearer " + editorToken)
+        .contentType(ContentType.JSON)
+        .body(bulkApproval)
+        .post("/metadata/workflow/bulk")
+        .then()
+        .statusCode(403);
+
+    given()
+        .header("Authorization", "Bearer " + qaToken)
+        .contentType(ContentType.JSON)
+        .body(bulkApproval)
+        .post("/metadata/workflow/bulk")
+        .then()
+        .statusCode(200)
+        .body("metadataId", contains(metadataId, "does-not-exist"))
+        .body("status", contains("UPDATED", "NOT_FOUND"));
+
+    String editorId = extractSubFromToken(editorToken);
+    given()
+        .header("Authorization", "Bearer " + adminToken)
+        .contentType(ContentType.JSON)
+        .body("{\"operation\": \"ASSIGN_USER\", \"userId\": \"" + editorId + "\", \"metadataIds\": [\"" + metadataId + "\"]}")
+        .post("/metadata/workflow/bulk")
+        .then()
+        .statusCode(200)
+        .body("status", contains("UPDATED"));
+
+    given()
+        .header("Authorization", "Bearer " + adminToken)
+        .get("/metadata/" + metadataId)
+        .then()
+        .statusCode(200)
+        .body("approved", equalTo(true))
+        .body("assignedUserId", equalTo(editorId))
+        .body("teamMemberIds", hasItem(editorId));
+
+    given()
+        .header("Authorization", "Bearer " + adminToken)
+        .contentType(ContentType.JSON)
+        .body("{\"operation\": \"ASSIGN_ROLE\", \"metadataIds\": [\"" + metadataId + "\"]}")
+        .post("/metadata/workflow/bulk")
+        .then()
+        .statusCode(400);
+  }
+
   @Test
   @DisplayName("Editor cannot delete metadata assigned to other user")
   void editorCannotDeleteMetadataAssignedToOtherUser() {
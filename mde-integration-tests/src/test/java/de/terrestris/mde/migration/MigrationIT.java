@@ -1,7 +1,13 @@
 package de.terrestris.mde.migration;
 
 import de.terrestris.mde.mde_backend.MdeBackendApplication;
+import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
+import de.terrestris.mde.mde_backend.model.BaseMetadata;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import jakarta.persistence.EntityManagerFactory;
 import io.restassured.RestAssured;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +20,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.postgresql.PostgreSQLContainer;
 
@@ -21,6 +28,9 @@ import javax.sql.DataSource;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
 import java.nio.file.Paths;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,6 +50,15 @@ public class MigrationIT {
   @Autowired
   private JdbcTemplate jdbcTemplate;
 
+  @Autowired
+  private MetadataCollectionRepository metadataCollectionRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
   @LocalServerPort
   private int port;
 
@@ -125,4 +144,49 @@ public class MigrationIT {
     int migrationCount = Integer.parseInt(result);
     assertTrue(migrationCount >= 13, "Expected at least 13 migrations (V1.0.0 to V2.0.9)");
   }
+
+  @Test
+  public void testIdSequencesMatchAllocationSize() {
+    List<Long> increments = jdbcTemplate.queryForList(
+        "SELECT increment_by FROM pg_sequences WHERE sequencename IN ('metadata_collection_id_seq', 'service_deletion_id_seq')",
+        Long.class);
+    assertEquals(List.of((long) BaseMetadata.ID_ALLOCATION_SIZE, (long) BaseMetadata.ID_ALLOCATION_SIZE), increments,
+        "The id sequences must be incremented by the allocation size of the entities");
+  }
+
+  @Test
+  public void testInsertsAndUpdatesAreBatched() {
+    int count = 2 * BaseMetadata.ID_ALLOCATION_SIZE;
+    List<MetadataCollection> metadataCollections = IntStream.range(0, count)
+        .mapToObj(i -> {
+          MetadataCollection metadataCollection = new MetadataCollection(UUID.randomUUID().toString());
+          metadataCollection.getIsoMetadata().setTitle("Batch Test " + i);
+          return metadataCollection;
+        })
+        .toList();
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+    try {
+      statistics.clear();
+      transactionTemplate.executeWithoutResult(status -> metadataCollectionRepository.saveAll(metadataCollections));
+
+      assertEquals(count, statistics.getEntityInsertCount());
+      // one statement per call of the id sequence and one for all batches of inserts
+      assertTrue(statistics.getPrepareStatementCount() <= 4,
+          "Inserts should be batched, but " + statistics.getPrepareStatementCount() + " statements were prepared");
+      assertEquals("Batch Test 0", metadataCollections.getFirst().getTitle());
+
+      statistics.clear();
+      transactionTemplate.executeWithoutResult(status -> metadataCollectionRepository.findAllById(
+              metadataCollections.stream().map(BaseMetadata::getId).toList())
+          .forEach(metadataCollection -> metadataCollection.getIsoMetadata().setTitle(metadataCollection.getIsoMetadata().getTitle() + " updated")));
+
+      assertEquals(count, statistics.getEntityUpdateCount());
+      // one query and one statement for all batches of updates
+      assertTrue(statistics.getPrepareStatementCount() <= 2,
+          "Updates should be batched, but " + statistics.getPrepareStatementCount() + " statements were prepared");
+    } finally {
+      metadataCollectionRepository.deleteAllById(metadataCollections.stream().map(BaseMetadata::getId).toList());
+    }
+  }
 }
@@ -101,8 +101,8 @@ public class ProductionMigrationExecutionIT {
     );
     
     assertNotNull(latestVersion, "A migration should have been applied");
-    assertEquals("2.0.9", latestVersion,
-        "Latest migration should be V2.0.9 - " +
+    assertEquals("2.1.6", latestVersion,
+        "Latest migration should be V2.1.6 - " +
         "if different, check if migrations were added or removed");
   }
 
@@ -119,6 +119,13 @@ public class ProductionMigrationExecutionIT {
     assertTrue(versions.contains("1.0.1"), "V1.0.1__remove_title_from_metadata.sql should execute");
     assertTrue(versions.contains("2.0.0"), "V2.0.0__refactor_base_models.sql should execute");
     assertTrue(versions.contains("2.0.9"), "V2.0.9__add_uuid_fields_to_json_objects.sql should execute");
+    assertTrue(versions.contains("2.1.0"), "V2.1.0__title_column.sql should execute");
+    assertTrue(versions.contains("2.1.1"), "V2.1.1__user_column_indexes.sql should execute");
+    assertTrue(versions.contains("2.1.2"), "V2.1.2__extent_column.sql should execute");
+    assertTrue(versions.contains("2.1.3"), "V2.1.3__index_change_log.sql should execute");
+    assertTrue(versions.contains("2.1.4"), "V2.1.4__service_identity.sql should execute");
+    assertTrue(versions.contains("2.1.5"), "V2.1.5__optimistic_locking.sql should execute");
+    assertTrue(versions.contains("2.1.6"), "V2.1.6__pooled_id_sequences.sql should execute");
   }
 
   @Test
@@ -0,0 +1,62 @@
+package de.terrestris.mde.mde_backend.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers custom SQL functions for use in criteria queries. Registered via {@code
+ * META-INF/services/org.hibernate.boot.model.FunctionContributor}.
+ */
+public class MdeFunctionContributor implements FunctionContributor {
+
+  /**
+   * Whether a text array column contains the given value. Renders as {@code @>} containment, so it
+   * can be served by a GIN index on the column. Hibernate's own {@code array_contains} casts the
+   * value to a varchar array, which does not match the text[] columns.
+   */
+  public static final String TEXT_ARRAY_CONTAINS = "text_array_contains";
+
+  /**
+   * Whether a box column overlaps the box given by its corner coordinates (minx, miny, maxx, maxy).
+   * Renders as {@code &&}, so it can be served by a GiST index on the column.
+   */
+  public static final String BOX_INTERSECTS = "box_intersects";
+
+  /**
+   * Whether a box column lies within the box given by its corner coordinates (minx, miny, maxx,
+   * maxy). Renders as {@code <@}, so it can be served by a GiST index on the column.
+   */
+  public static final String BOX_WITHIN = "box_within";
+
+  @Override
+  public void contributeFunctions(FunctionContributions functionContributions) {
+    BasicType<Boolean> booleanType =
+        functionContributions
+            .getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.BOOLEAN);
+
+    functionContributions
+        .getFunctionRegistry()
+        .patternDescriptorBuilder(TEXT_ARRAY_CONTAINS, "(?1 @> array[?2]::text[])")
+        .setExactArgumentCount(2)
+        .setInvariantType(booleanType)
+        .register();
+
+    functionContributions
+        .getFunctionRegistry()
+        .patternDescriptorBuilder(BOX_INTERSECTS, "(?1 && box(point(?2, ?3), point(?4, ?5)))")
+        .setExactArgumentCount(5)
+        .setInvariantType(booleanType)
+        .register();
+
+    functionContributions
+        .getFunctionRegistry()
+        .patternDescriptorBuilder(BOX_WITHIN, "(?1 <@ box(point(?2, ?3), point(?4, ?5)))")
+        .setExactArgumentCount(5)
+        .setInvariantType(booleanType)
+        .register();
+  }
+}
@@ -0,0 +1,92 @@
+package de.terrestris.mde.mde_backend.config;
+
+import org.apache.lucene.analysis.compound.DictionaryCompoundWordTokenFilterFactory;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.core.StopFilterFactory;
+import org.apache.lucene.analysis.de.GermanLightStemFilterFactory;
+import org.apache.lucene.analysis.de.GermanNormalizationFilterFactory;
+import org.apache.lucene.analysis.miscellaneous.TruncateTokenFilterFactory;
+import org.apache.lucene.analysis.ngram.EdgeNGramFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurationContext;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurer;
+
+/**
+ * Registers the custom analyzers and normalizers of the metadata index. Referenced from the {@code
+ * hibernate.search.backend.analysis.configurer} property.
+ */
+public class MdeLuceneAnalysisConfigurer implements LuceneAnalysisConfigurer {
+
+  /**
+   * Version of the analyzer definitions below. Increase it when changing them, so persistent
+   * indexes are rebuilt on the next startup.
+   */
+  public static final int ANALYSIS_VERSION = 1;
+
+  /** Normalizer for case insensitive keyword matching and sorting. */
+  public static final String LOWERCASE_NORMALIZER = "lowercase";
+
+  /**
+   * Analyzer for German full text: splits compounds into the word parts listed in {@code
+   * analysis/compound-words-de.txt}, removes stop words, folds umlauts and reduces words to their
+   * stem.
+   */
+  public static final String GERMAN_ANALYZER = "german";
+
+  /**
+   * Analyzer indexing all prefixes (edge n-grams) of the words of a text for typeahead suggestions.
+   * Umlauts are folded, so "strasse" completes "Straße".
+   */
+  public static final String AUTOCOMPLETE_ANALYZER = "autocomplete";
+
+  /**
+   * Analyzer for typeahead input, matching the terms of {@link #AUTOCOMPLETE_ANALYZER}. Words are
+   * truncated to {@link #AUTOCOMPLETE_MAX_GRAM_SIZE} characters, so longer input still matches the
+   * longest indexed prefix.
+   */
+  public static final String AUTOCOMPLETE_QUERY_ANALYZER = "autocomplete_query";
+
+  /** The length of the longest prefix indexed by {@link #AUTOCOMPLETE_ANALYZER}. */
+  public static final int AUTOCOMPLETE_MAX_GRAM_SIZE = 20;
+
+  @Override
+  public void configure(LuceneAnalysisConfigurationContext context) {
+    context.normalizer(LOWERCASE_NORMALIZER).custom().tokenFilter(LowerCaseFilterFactory.class);
+
+    context
+        .analyzer(GERMAN_ANALYZER)
+        .custom()
+        .tokenizer(StandardTokenizerFactory.class)
+        .tokenFilter(LowerCaseFilterFactory.class)
+        // the compound parts and stop words are listed with umlauts, so this has to happen before
+        // the normalization
+        .tokenFilter(DictionaryCompoundWordTokenFilterFactory.class)
+        .param("dictionary", "analysis/compound-words-de.txt")
+        .param("onlyLongestMatch", "true")
+        .tokenFilter(StopFilterFactory.class)
+        .param("words", "org/apache/lucene/analysis/snowball/german_stop.txt")
+        .param("format", "snowball")
+        .tokenFilter(GermanNormalizationFilterFactory.class)
+        .tokenFilter(GermanLightStemFilterFactory.class);
+
+    context
+        .analyzer(AUTOCOMPLETE_ANALYZER)
+        .custom()
+        .tokenizer(StandardTokenizerFactory.class)
+        .tokenFilter(LowerCaseFilterFactory.class)
+        .tokenFilter(GermanNormalizationFilterFactory.class)
+        .tokenFilter(EdgeNGramFilterFactory.class)
+        .param("minGramSize", "1")
+        .param("maxGramSize", String.valueOf(AUTOCOMPLETE_MAX_GRAM_SIZE))
+        .param("preserveOriginal", "true");
+
+    context
+        .analyzer(AUTOCOMPLETE_QUERY_ANALYZER)
+        .custom()
+        .tokenizer(StandardTokenizerFactory.class)
+        .tokenFilter(LowerCaseFilterFactory.class)
+        .tokenFilter(GermanNormalizationFilterFactory.class)
+        .tokenFilter(TruncateTokenFilterFactory.class)
+        .param("prefixLength", String.valueOf(AUTOCOMPLETE_MAX_GRAM_SIZE));
+  }
+}
@@ -4,12 +4,16 @@ import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.OK;
 
+import com.github.fge.jsonpatch.JsonPatchException;
+import de.terrestris.mde.mde_backend.enumeration.ExportFormat;
 import de.terrestris.mde.mde_backend.enumeration.MetadataType;
 import de.terrestris.mde.mde_backend.exception.DuplicateServiceIdentificationException;
 import de.terrestris.mde.mde_backend.exception.DuplicateTitleException;
+import de.terrestris.mde.mde_backend.exception.InvalidCursorException;
 import de.terrestris.mde.mde_backend.model.BaseMetadata;
 import de.terrestris.mde.mde_backend.model.MetadataCollection;
 import de.terrestris.mde.mde_backend.model.dto.*;
+import de.terrestris.mde.mde_backend.model.dto.sse.RolloverMessage;
 import de.terrestris.mde.mde_backend.model.json.Comment;
 import de.terrestris.mde.mde_backend.model.json.Layer;
 import de.terrestris.mde.mde_backend.service.*;
@@ -36,15 +40,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
 
 @Log4j2
 @RestController
@@ -64,6 +75,10 @@ public class MetadataCollectionController
 
   @Autowired private TrackingExecutorService executor;
 
+  @Autowired private MetadataExportService exportService;
+
+  @Autowired private RolloverService rolloverService;
+
   @GetMapping("/{metadataId}")
   @ResponseStatus(HttpStatus.OK)
   @Operation(security = {@SecurityRequirement(name = "bearer-key")})
@@ -85,7 +100,8 @@ public class MetadataCollectionController
             description =
                 "Internal Server Error: Something internal went wrong while getting the MetadataCollection")
       })
-  public MetadataCollection findOneByMetadataId(@PathVariable("metadataId") String metadataId) {
+  public ResponseEntity<MetadataCollection> findOneByMetadataId(
+      @PathVariable("metadataId") String metadataId) {
     log.trace("Requested to return MetadataCollection with id {}.", metadataId);
 
     try {
@@ -96,7 +112,7 @@ public class MetadataCollectionController
 
         log.trace("Successfully got MetadataCollection with metadataId {}", metadataId);
 
-        return metadataCollection;
+        return withETag(metadataCollection);
       } else {
         log.error("Could not find MetadataCollection with metadataId {}", metadataId);
 
@@ -175,20 +191,78 @@ public class MetadataCollectionController
   }
 
   @PatchMapping("/{metadataId}")
-  public BaseMetadata updateJsonValue(
-      @RequestBody MetadataJsonPatch patch, @PathVariable("metadataId") String metadataId) {
+  public ResponseEntity<BaseMetadata> updateJsonValue(
+      @RequestBody MetadataJsonPatch patch,
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     MetadataType metadataType = patch.getType();
+    Long version = parseVersion(ifMatch);
+
+    try {
+      MetadataCollection metadataCollection =
+          switch (metadataType) {
+            case MetadataType.CLIENT ->
+                service.updateClientJsonValue(
+                    metadataId, patch.getKey(), patch.getValue(), version);
+            case MetadataType.TECHNICAL ->
+                service.updateTechnicalJsonValue(
+                    metadataId, patch.getKey(), patch.getValue(), version);
+            case MetadataType.ISO ->
+                service.updateIsoJsonValue(metadataId, patch.getKey(), patch.getValue(), version);
+            default -> throw new IllegalArgumentException("Invalid metadata type: " + metadataType);
+          };
+      return withETag(metadataCollection);
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
+    } catch (CannotAcquireLockException e) {
+      log.error("Concurrent update for metadata with id {}: {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+    } catch (DuplicateTitleException | DuplicateServiceIdentificationException e) {
+      log.error("Error while updating metadata with id {}: \n {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+    } catch (Exception e) {
+      log.error("Error while updating metadata with id {}: \n {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
 
+  @PatchMapping("/{metadataId}/batch")
+  @Operation(
+      summary = "Update several values of a metadata collection at once",
+      description =
+          "Applies a list of type, key and value changes like the single value PATCH, but in one"
+              + " transaction with a single write.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  public ResponseEntity<BaseMetadata> updateJsonValues(
+      @RequestBody List<MetadataJsonPatch> changes,
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      return switch (metadataType) {
-        case MetadataType.CLIENT ->
-            service.updateClientJsonValue(metadataId, patch.getKey(), patch.getValue());
-        case MetadataType.TECHNICAL ->
-            service.updateTechnicalJsonValue(metadataId, patch.getKey(), patch.getValue());
-        case MetadataType.ISO ->
-            service.updateIsoJsonValue(metadataId, patch.getKey(), patch.getValue());
-        default -> throw new IllegalArgumentException("Invalid metadata type: " + metadataType);
-      };
+      return withETag(service.updateJsonValues(metadataId, changes, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
+    } catch (NoSuchElementException e) {
+      throw new ResponseStatusException(
+          NOT_FOUND,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.NOT_FOUND", null, LocaleContextHolder.getLocale()),
+          e);
+    } catch (IllegalArgumentException | JacksonException e) {
+      log.warn("Invalid changes for metadata with id {}: {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
     } catch (CannotAcquireLockException e) {
       log.error("Concurrent update for metadata with id {}: {}", metadataId, e.getMessage());
       log.trace("Full stack trace: ", e);
@@ -211,13 +285,68 @@ public class MetadataCollectionController
     }
   }
 
+  @PatchMapping(value = "/{metadataId}", consumes = "application/json-patch+json")
+  @Operation(
+      summary = "Patch the JSON documents of a metadata collection",
+      description =
+          "Applies a RFC 6902 JSON patch. The pointers start with the document, e.g."
+              + " /isoMetadata/services/3/featureTypes/0/columns/12/alias.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  public ResponseEntity<BaseMetadata> patch(
+      @RequestBody JsonNode patch,
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
+    try {
+      return withETag(service.patch(metadataId, patch, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
+    } catch (NoSuchElementException e) {
+      throw new ResponseStatusException(
+          NOT_FOUND,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.NOT_FOUND", null, LocaleContextHolder.getLocale()),
+          e);
+    } catch (IllegalArgumentException | IOException e) {
+      log.warn("Invalid patch for metadata with id {}: {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    } catch (CannotAcquireLockException e) {
+      log.error("Concurrent update for metadata with id {}: {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+    } catch (JsonPatchException
+        | DuplicateTitleException
+        | DuplicateServiceIdentificationException e) {
+      log.error("Error while patching metadata with id {}: \n {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+    } catch (Exception e) {
+      log.error("Error while patching metadata with id {}: \n {}", metadataId, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
   @PatchMapping("/{metadataId}/updateLayers/{serviceIdentification}")
   public String updateLayers(
       @PathVariable("metadataId") String metadataId,
       @PathVariable("serviceIdentification") String serviceIdentification,
-      @RequestBody List<Layer> layers) {
+      @RequestBody List<Layer> layers,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      return service.updateLayers(metadataId, serviceIdentification, layers);
+      return service.updateLayers(metadataId, serviceIdentification, layers, version);
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while updating layers of metadata with id {} and serviceIdentification {}: \n {}",
@@ -342,10 +471,12 @@ public class MetadataCollectionController
 
   @PostMapping("/{metadataId}/assignUser")
   public ResponseEntity<Void> assignUser(
-      @PathVariable("metadataId") String metadataId, @RequestBody String userId) {
+      @PathVariable("metadataId") String metadataId,
+      @RequestBody String userId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.assignUser(metadataId, userId);
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.assignUser(metadataId, userId, version));
     } catch (IllegalStateException e) {
       log.error(
           "Illegal State Error while assigning user to metadata with id {}: \n {}",
@@ -357,6 +488,8 @@ public class MetadataCollectionController
           messageSource.getMessage(
               "BASE_CONTROLLER.CONFLICT", null, LocaleContextHolder.getLocale()),
           e);
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while assigning user to metadata with id {}: \n {}", metadataId, e.getMessage());
@@ -372,10 +505,14 @@ public class MetadataCollectionController
 
   @DeleteMapping("/{metadataId}/unassignUser")
   public ResponseEntity<Void> unassignUser(
-      @PathVariable("metadataId") String metadataId, @RequestBody String userId) {
+      @PathVariable("metadataId") String metadataId,
+      @RequestBody String userId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.unassignUser(metadataId);
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.unassignUser(metadataId, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while unassigning user from metadata with id {}: \n {}",
@@ -393,10 +530,14 @@ public class MetadataCollectionController
 
   @DeleteMapping("/{metadataId}/addToTeam")
   public ResponseEntity<Void> addToTeam(
-      @PathVariable("metadataId") String metadataId, @RequestBody String userId) {
+      @PathVariable("metadataId") String metadataId,
+      @RequestBody String userId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.addToTeam(metadataId, userId);
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.addToTeam(metadataId, userId, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while adding user to team of metadata with id {}: \n {}",
@@ -414,10 +555,14 @@ public class MetadataCollectionController
 
   @PostMapping("/{metadataId}/removeFromTeam")
   public ResponseEntity<Void> removeFromTeam(
-      @PathVariable("metadataId") String metadataId, @RequestBody String userId) {
+      @PathVariable("metadataId") String metadataId,
+      @RequestBody String userId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.removeFromTeam(metadataId, userId);
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.removeFromTeam(metadataId, userId, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while removing user from team of metadata with id {}: \n {}",
@@ -435,11 +580,14 @@ public class MetadataCollectionController
 
   @PostMapping("/{metadataId}/assignRole")
   public ResponseEntity<Void> assignRole(
-      @PathVariable("metadataId") String metadataId, @RequestBody AssignRoleData data) {
+      @PathVariable("metadataId") String metadataId,
+      @RequestBody AssignRoleData data,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.assignRole(metadataId, data.getRole());
-
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.assignRole(metadataId, data.getRole(), version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while assigning role to metadata with id {}: \n {}", metadataId, e.getMessage());
@@ -454,10 +602,14 @@ public class MetadataCollectionController
   }
 
   @DeleteMapping("/{metadataId}/unassignRole")
-  public ResponseEntity<Void> unassignRole(@PathVariable("metadataId") String metadataId) {
+  public ResponseEntity<Void> unassignRole(
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.unassignRole(metadataId);
-      return new ResponseEntity<Void>(OK);
+      return withETag(service.unassignRole(metadataId, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error(
           "Error while unassigning role from metadata with id {}: \n {}",
@@ -482,18 +634,231 @@ public class MetadataCollectionController
       value = {
         @ApiResponse(
             responseCode = "200",
-            description = "Ok: MetadataCollections were successfully queried"),
+            description =
+                "Ok: MetadataCollections were successfully queried. Returns summaries unless view=full is requested"),
         @ApiResponse(
             responseCode = "500",
             description =
                 "Internal Server Error: Something internal went wrong while querying MetadataCollections")
       })
-  public Page<MetadataCollection> query(
+  public Page<?> query(
       @RequestBody QueryConfig queryConfig,
-      @PageableDefault(Integer.MAX_VALUE) @ParameterObject Pageable pageable) {
+      @RequestParam(value = "view", required = false) String view,
+      @PageableDefault(size = 50) @ParameterObject Pageable pageable) {
     log.trace("Query MetadataCollections with queryConfig: {}", queryConfig);
     try {
-      return this.service.query(queryConfig, pageable);
+      if ("full".equalsIgnoreCase(view)) {
+        return this.service.query(queryConfig, pageable);
+      }
+      return this.service.querySummaries(queryConfig, pageable);
+    } catch (Exception e) {
+      log.error("Error while querying MetadataCollection with queryConfig: {}", queryConfig, e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @GetMapping(
+      path = "/search",
+      produces = {"application/json"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description =
+                "Ok: Returns the MetadataCollections matching the search text ordered by relevance, with highlighted snippets"),
+        @ApiResponse(responseCode = "400", description = "Bad Request: The search text is empty"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while searching MetadataCollections")
+      })
+  public Page<MetadataSearchHit> search(
+      @RequestParam(value = "q") String text,
+      @PageableDefault(size = 20) @ParameterObject Pageable pageable) {
+    log.trace("Search MetadataCollections with text: {}", text);
+    if (text.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be empty");
+    }
+    try {
+      return this.service.search(text, pageable);
+    } catch (Exception e) {
+      log.error("Error while searching MetadataCollections with text: {}", text, e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @GetMapping(
+      path = "/suggest",
+      produces = {"application/json"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Ok: Returns the titles and keywords completing the input"),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Bad Request: The input is empty or the size is not positive"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while suggesting completions")
+      })
+  public MetadataSuggestions suggest(
+      @RequestParam(value = "q") String text,
+      @RequestParam(value = "size", defaultValue = "10") int size) {
+    log.trace("Suggest completions for: {}", text);
+    if (text.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be empty");
+    }
+    if (size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+    }
+    try {
+      return this.service.suggest(text, size);
+    } catch (Exception e) {
+      log.error("Error while suggesting completions for: {}", text, e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @PostMapping(path = "/export")
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description =
+                "Ok: Streams the MetadataCollections matching the query as NDJSON (format=ndjson, default) or CSV (format=csv). The fields parameter selects the exported fields as dot separated paths, e.g. isoMetadata.extent.minx"),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Bad Request: The format or one of the fields is invalid"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while exporting MetadataCollections")
+      })
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestBody QueryConfig queryConfig,
+      @RequestParam(value = "format", defaultValue = "ndjson") String format,
+      @RequestParam(value = "fields", required = false) List<String> fields) {
+    log.trace("Export MetadataCollections with queryConfig: {}", queryConfig);
+    ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+      MetadataExportService.validateFields(fields);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+
+    StreamingResponseBody body =
+        out -> {
+          try {
+            exportService.export(queryConfig, exportFormat, fields, out);
+          } catch (Exception e) {
+            // the response has already been started, the client notices the truncated body
+            log.error(
+                "Error while exporting MetadataCollections with queryConfig: {}", queryConfig, e);
+            throw e;
+          }
+        };
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment()
+                .filename("metadata." + exportFormat.getExtension())
+                .build()
+                .toString())
+        .body(body);
+  }
+
+  @PostMapping(
+      path = "/facets",
+      produces = {"application/json"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description =
+                "Ok: Returns the number of MetadataCollections matching the query per status, approval, assignment, team membership and role"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while counting MetadataCollections")
+      })
+  public MetadataFacets facets(@RequestBody QueryConfig queryConfig) {
+    log.trace("Count facets of MetadataCollections with queryConfig: {}", queryConfig);
+    try {
+      return this.service.facets(queryConfig);
+    } catch (Exception e) {
+      log.error("Error while counting facets with queryConfig: {}", queryConfig, e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @PostMapping(
+      path = "/query",
+      params = "cursor",
+      produces = {"application/json"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description =
+                "Ok: MetadataCollections were successfully queried. Pass the returned nextCursor to fetch the next page"),
+        @ApiResponse(responseCode = "400", description = "Bad Request: The cursor is invalid"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while querying MetadataCollections")
+      })
+  public MetadataCollectionSlice<?> queryByCursor(
+      @RequestBody QueryConfig queryConfig,
+      @RequestParam(value = "cursor") String cursor,
+      @RequestParam(value = "size", defaultValue = "50") int size,
+      @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal,
+      @RequestParam(value = "view", required = false) String view) {
+    log.trace("Query MetadataCollections by cursor with queryConfig: {}", queryConfig);
+    if (size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+    }
+    try {
+      if ("full".equalsIgnoreCase(view)) {
+        return this.service.queryAfter(queryConfig, cursor, size, withTotal);
+      }
+      return this.service.querySummariesAfter(queryConfig, cursor, size, withTotal);
+    } catch (InvalidCursorException e) {
+      log.debug("Invalid cursor: {}", e.getMessage());
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
     } catch (Exception e) {
       log.error("Error while querying MetadataCollection with queryConfig: {}", queryConfig, e);
 
@@ -517,11 +882,16 @@ public class MetadataCollectionController
                 "Internal Server Error: Something internal went wrong while adding the Comment")
       })
   public ResponseEntity<Comment> addComment(
-      @RequestBody String commentText, @PathVariable("metadataId") String metadataId) {
+      @RequestBody String commentText,
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      Comment comment = service.addComment(metadataId, commentText);
+      Comment comment = service.addComment(metadataId, commentText, version);
       return ResponseEntity.status(OK).body(comment);
       // TODO: Add more specific exception handling
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error("Error while add comment: {}", e.getMessage());
       log.trace("Full stack trace: ", e);
@@ -538,10 +908,15 @@ public class MetadataCollectionController
   @ResponseStatus(HttpStatus.NO_CONTENT)
   @Operation(security = {@SecurityRequirement(name = "bearer-key")})
   public ResponseEntity<Void> deleteComment(
-      @RequestBody String commentId, @PathVariable("metadataId") String metadataId) {
+      @RequestBody String commentId,
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.deleteComment(metadataId, UUID.fromString(commentId));
+      service.deleteComment(metadataId, UUID.fromString(commentId), version);
       return ResponseEntity.status(OK).build();
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error("Error while deleting comment: {}", e.getMessage());
       log.trace("Full stack trace: ", e);
@@ -672,10 +1047,14 @@ public class MetadataCollectionController
   }
 
   @PostMapping("/{metadataId}/approved")
-  public ResponseEntity<Void> approveMetadata(@PathVariable("metadataId") String metadataId) {
+  public ResponseEntity<Void> approveMetadata(
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.setApprovalState(metadataId, true);
-      return new ResponseEntity<>(OK);
+      return withETag(service.setApprovalState(metadataId, true, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error("Error while approving metadata with id {}: \n {}", metadataId, e.getMessage());
       log.trace("Full stack trace: ", e);
@@ -689,10 +1068,14 @@ public class MetadataCollectionController
   }
 
   @DeleteMapping("/{metadataId}/approved")
-  public ResponseEntity<Void> disapproveMetadata(@PathVariable("metadataId") String metadataId) {
+  public ResponseEntity<Void> disapproveMetadata(
+      @PathVariable("metadataId") String metadataId,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    Long version = parseVersion(ifMatch);
     try {
-      service.setApprovalState(metadataId, false);
-      return new ResponseEntity<>(OK);
+      return withETag(service.setApprovalState(metadataId, false, version));
+    } catch (OptimisticLockingFailureException e) {
+      throw versionConflict(metadataId, ifMatch, e);
     } catch (Exception e) {
       log.error("Error while disapproving metadata with id {}: \n {}", metadataId, e.getMessage());
       log.trace("Full stack trace: ", e);
@@ -705,6 +1088,135 @@ public class MetadataCollectionController
     }
   }
 
+  @PostMapping(
+      path = "/workflow/bulk",
+      produces = {"application/json"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description =
+                "Ok: Applied the workflow operation (ASSIGN_USER, UNASSIGN_USER, ADD_TO_TEAM, REMOVE_FROM_TEAM, ASSIGN_ROLE, UNASSIGN_ROLE, APPROVE or DISAPPROVE) to the MetadataCollections given by metadataIds or matching the query. Returns the status (UPDATED, NOT_FOUND or REJECTED) of each MetadataCollection"),
+        @ApiResponse(
+            responseCode = "400",
+            description =
+                "Bad Request: The operation, userId or role is missing or invalid, or too many MetadataCollections are selected"),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden: The operation is not allowed for the current user"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while updating the MetadataCollections")
+      })
+  public List<BulkWorkflowResult> bulkWorkflow(@RequestBody BulkWorkflowRequest request) {
+    log.trace("Bulk workflow operation requested: {}", request);
+    try {
+      return service.bulkUpdate(request);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    } catch (AccessDeniedException e) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage(), e);
+    } catch (Exception e) {
+      log.error("Error while executing bulk workflow operation {}: \n {}", request, e.getMessage());
+      log.trace("Full stack trace: ", e);
+
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @PostMapping(path = "/rollover")
+  @Operation(
+      summary = "Clone a set of metadata for a new year",
+      description =
+          "Starts cloning the metadata given by metadataIds or matching the query in the background."
+              + " The titles of the clones are given by the titlePattern, where {title} is replaced"
+              + " by the original title. Metadata whose clone title exists already is skipped, so an"
+              + " interrupted rollover is resumed by starting it again. The progress is sent as"
+              + " 'rollover' server sent event and can be read from /metadata/rollover/status.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "202", description = "Accepted: The rollover job was started"),
+        @ApiResponse(
+            responseCode = "400",
+            description =
+                "Bad Request: The titlePattern lacks {title} or neither metadataIds nor a query are given"),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Forbidden: The rollover is not allowed for the current user"),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Conflict: A rollover job is running already"),
+        @ApiResponse(
+            responseCode = "500",
+            description =
+                "Internal Server Error: Something internal went wrong while starting the rollover")
+      })
+  public ResponseEntity<RolloverMessage> startRollover(@RequestBody RolloverRequest request) {
+    log.info("Starting rollover with titlePattern {}", request.getTitlePattern());
+    try {
+      return new ResponseEntity<>(rolloverService.startRollover(request), HttpStatus.ACCEPTED);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+    } catch (AccessDeniedException e) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage(), e);
+    } catch (RuntimeException e) {
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR,
+          messageSource.getMessage(
+              "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
+          e);
+    }
+  }
+
+  @GetMapping(path = "/rollover/status")
+  @Operation(
+      summary = "Get the status of the rollover job",
+      description = "Returns the progress of the running or last rollover job.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Ok: The status of the rollover job"),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Not Found: No rollover job was started yet")
+      })
+  public RolloverMessage getRolloverStatus() {
+    return rolloverService
+        .getRolloverStatus()
+        .orElseThrow(
+            () ->
+                new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "No rollover job was started yet"));
+  }
+
+  @PostMapping(path = "/rollover/cancel")
+  @Operation(
+      summary = "Cancel the rollover job",
+      description = "Stops the rollover job after the current batch.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Ok: The rollover job is being cancelled"),
+        @ApiResponse(responseCode = "409", description = "Conflict: No rollover job is running")
+      })
+  public RolloverMessage cancelRollover() {
+    if (!rolloverService.cancelRollover()) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "No rollover job is running");
+    }
+    log.info("Cancelling the rollover job");
+    return rolloverService.getRolloverStatus().orElseThrow();
+  }
+
   @Operation(
       summary = "Publishes a metadata collection in the catalog (Geonetwork)",
       description = "Publishes the metadata collection in the catalog (Geonetwork).",
@@ -849,4 +1361,48 @@ public class MetadataCollectionController
           e);
     }
   }
+
+  /**
+   * Parses the version of an If-Match header, as returned in the ETag of a metadata collection.
+   *
+   * @return the version or {@code null} if no specific version is required
+   */
+  private static Long parseVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    if (tag.startsWith("W/")) {
+      tag = tag.substring(2);
+    }
+    try {
+      return Long.valueOf(tag.replace("\"", ""));
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match header", e);
+    }
+  }
+
+  private static <T extends BaseMetadata> ResponseEntity<T> withETag(T metadata) {
+    return ResponseEntity.ok().eTag(String.valueOf(metadata.getVersion())).body(metadata);
+  }
+
+  /** An empty response of an update that only returns the new version. */
+  private static ResponseEntity<Void> withETag(long version) {
+    return ResponseEntity.ok().eTag(String.valueOf(version)).build();
+  }
+
+  /**
+   * Maps a concurrent modification to 412 if the client sent a version via If-Match and to 409
+   * otherwise.
+   */
+  private ResponseStatusException versionConflict(
+      String metadataId, String ifMatch, OptimisticLockingFailureException e) {
+    log.info("MetadataCollection with metadataId {} was modified concurrently", metadataId);
+    log.trace("Full Stack trace:", e);
+
+    return new ResponseStatusException(
+        ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED,
+        "The metadata collection was modified concurrently, reload it and try again",
+        e);
+  }
 }
@@ -1,5 +1,6 @@
 package de.terrestris.mde.mde_backend.controller;
 
+import de.terrestris.mde.mde_backend.model.dto.sse.ReindexMessage;
 import de.terrestris.mde.mde_backend.service.SearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -23,22 +25,31 @@ public class SearchController {
   @Autowired private SearchService service;
 
   @GetMapping(path = "/index/initialize")
-  @ResponseStatus(HttpStatus.OK)
-  @Operation(security = {@SecurityRequirement(name = "bearer-key")})
+  @Operation(
+      summary = "Rebuild the search index",
+      description =
+          "Starts rebuilding the whole search index in the background. The progress is sent as "
+              + "'reindex' server sent event and can be read from /search/index/status.",
+      security = {@SecurityRequirement(name = "bearer-key")})
   @ApiResponses(
       value = {
         @ApiResponse(
-            responseCode = "200",
-            description = "Ok: The index was successfully initialized"),
+            responseCode = "202",
+            description = "Accepted: The reindexing job was started"),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Conflict: A reindexing job is running already"),
         @ApiResponse(
             responseCode = "500",
             description =
                 "Internal Server Error: Something internal went wrong while initializing the index")
       })
-  public void initializeIndex() {
+  public ResponseEntity<ReindexMessage> initializeIndex() {
     log.info("Initializing index");
     try {
-      service.reindexAll();
+      return new ResponseEntity<>(service.startReindex(), HttpStatus.ACCEPTED);
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
     } catch (RuntimeException e) {
       throw new ResponseStatusException(
           HttpStatus.INTERNAL_SERVER_ERROR,
@@ -46,6 +57,45 @@ public class SearchController {
               "BASE_CONTROLLER.INTERNAL_SERVER_ERROR", null, LocaleContextHolder.getLocale()),
           e);
     }
-    ;
+  }
+
+  @GetMapping(path = "/index/status")
+  @Operation(
+      summary = "Get the status of the reindexing job",
+      description = "Returns the progress of the running or last reindexing job.",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Ok: The status of the reindexing job"),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Not Found: No reindexing job was started yet")
+      })
+  public ReindexMessage getIndexStatus() {
+    return service
+        .getReindexStatus()
+        .orElseThrow(
+            () ->
+                new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "No reindexing job was started yet"));
+  }
+
+  @PostMapping(path = "/index/cancel")
+  @Operation(
+      summary = "Cancel the reindexing job",
+      security = {@SecurityRequirement(name = "bearer-key")})
+  @ApiResponses(
+      value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Ok: The reindexing job is being cancelled"),
+        @ApiResponse(responseCode = "409", description = "Conflict: No reindexing job is running")
+      })
+  public ReindexMessage cancelIndex() {
+    if (!service.cancelReindex()) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "No reindexing job is running");
+    }
+    log.info("Cancelling the reindexing job");
+    return service.getReindexStatus().orElseThrow();
   }
 }
@@ -0,0 +1,9 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+/** The outcome of a bulk workflow operation for a single metadata collection. */
+public enum BulkWorkflowStatus {
+  UPDATED,
+  NOT_FOUND,
+  /** The metadata collection is assigned to another user and may not be reassigned. */
+  REJECTED
+}
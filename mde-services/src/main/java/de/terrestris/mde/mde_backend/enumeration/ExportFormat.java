@@ -0,0 +1,21 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+import lombok.Getter;
+
+/** The formats metadata collections can be exported in. */
+@Getter
+public enum ExportFormat {
+  /** Newline delimited JSON, one metadata collection per line. */
+  NDJSON("application/x-ndjson", "ndjson"),
+  /** Comma separated values with a header row. */
+  CSV("text/csv", "csv");
+
+  private final String mediaType;
+
+  private final String extension;
+
+  ExportFormat(String mediaType, String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+}
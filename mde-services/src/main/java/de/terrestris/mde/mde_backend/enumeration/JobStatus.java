@@ -0,0 +1,8 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+public enum JobStatus {
+  RUNNING,
+  FINISHED,
+  CANCELLED,
+  FAILED
+}
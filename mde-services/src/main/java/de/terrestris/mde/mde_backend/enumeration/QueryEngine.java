@@ -0,0 +1,9 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+/** The engines that can serve metadata collection queries. */
+public enum QueryEngine {
+  /** Query the Hibernate Search (Lucene) index. */
+  LUCENE,
+  /** Query the database using JPA specifications. */
+  SQL
+}
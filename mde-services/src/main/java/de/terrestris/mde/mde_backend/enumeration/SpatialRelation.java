@@ -0,0 +1,9 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+/** How the extent of a metadata collection has to relate to the extent of a query. */
+public enum SpatialRelation {
+  /** The extents share at least one point. */
+  INTERSECTS,
+  /** The extent of the metadata collection lies completely within the query extent. */
+  WITHIN
+}
@@ -0,0 +1,27 @@
+package de.terrestris.mde.mde_backend.enumeration;
+
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * Operations on the workflow columns of metadata collections, as offered by the single workflow
+ * endpoints. Each operation lists the authorities allowed to execute it, an empty set allows every
+ * authenticated user.
+ */
+public enum WorkflowOperation {
+  ASSIGN_USER(),
+  UNASSIGN_USER("ROLE_MDEADMINISTRATOR", "ROLE_MDEEDITOR", "ROLE_MDEQUALITYASSURANCE"),
+  ADD_TO_TEAM("ROLE_MDEADMINISTRATOR", "ROLE_MDEEDITOR"),
+  REMOVE_FROM_TEAM("ROLE_MDEADMINISTRATOR", "ROLE_MDEEDITOR"),
+  ASSIGN_ROLE(
+      "ROLE_MDEADMINISTRATOR", "ROLE_MDEEDITOR", "ROLE_MDEQUALITYASSURANCE", "ROLE_MDEDATAOWNER"),
+  UNASSIGN_ROLE("ROLE_MDEADMINISTRATOR", "ROLE_MDEEDITOR", "ROLE_MDEQUALITYASSURANCE"),
+  APPROVE("ROLE_MDEADMINISTRATOR", "ROLE_MDEQUALITYASSURANCE"),
+  DISAPPROVE("ROLE_MDEADMINISTRATOR", "ROLE_MDEQUALITYASSURANCE");
+
+  @Getter private final Set<String> authorities;
+
+  WorkflowOperation(String... authorities) {
+    this.authorities = Set.of(authorities);
+  }
+}
@@ -0,0 +1,20 @@
+package de.terrestris.mde.mde_backend.event.sse.job;
+
+import de.terrestris.mde.mde_backend.event.sse.SseEvent;
+import de.terrestris.mde.mde_backend.model.dto.sse.JobMessage;
+import lombok.Getter;
+
+@Getter
+public class JobEvent extends SseEvent {
+  private final String name;
+
+  /** The user to send the event to, {@code null} to broadcast it to all users. */
+  private final String keycloakId;
+
+  public JobEvent(Object source, String name, JobMessage message, String keycloakId) {
+    super(source, message);
+
+    this.name = name;
+    this.keycloakId = keycloakId;
+  }
+}
@@ -0,0 +1,21 @@
+package de.terrestris.mde.mde_backend.event.sse.job;
+
+import de.terrestris.mde.mde_backend.service.SseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JobEventListener {
+
+  @Autowired private SseService sseService;
+
+  @EventListener
+  public void onJobEvent(JobEvent event) {
+    if (event.getKeycloakId() == null) {
+      sseService.broadcast(event.getName(), event.getMessage());
+    } else {
+      sseService.send(event.getName(), event.getKeycloakId(), event.getMessage());
+    }
+  }
+}
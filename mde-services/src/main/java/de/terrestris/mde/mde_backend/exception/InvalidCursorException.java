@@ -0,0 +1,7 @@
+package de.terrestris.mde.mde_backend.exception;
+
+public class InvalidCursorException extends RuntimeException {
+  public InvalidCursorException(String cursor, Throwable cause) {
+    super("The cursor '" + cursor + "' is invalid.", cause);
+  }
+}
@@ -1,11 +1,15 @@
 package de.terrestris.mde.mde_backend.jpa;
 
 import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.MetadataUserReferences;
 import jakarta.persistence.QueryHint;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
@@ -17,7 +21,8 @@ import org.springframework.stereotype.Repository;
 public interface MetadataCollectionRepository
     extends BaseRepository<MetadataCollection, BigInteger>,
         JpaSpecificationExecutor<MetadataCollection>,
-        QuerydslPredicateExecutor<MetadataCollection> {
+        QuerydslPredicateExecutor<MetadataCollection>,
+        MetadataCollectionRepositoryCustom {
 
   @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
   Optional<MetadataCollection> findByMetadataId(String metadataId);
@@ -25,25 +30,58 @@ public interface MetadataCollectionRepository
   @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
   List<MetadataCollection> findByClonedFromId(String metadataId);
 
+  @Query("SELECT m.version FROM MetadataCollection m WHERE m.metadataId = :metadataId")
+  Optional<Long> findVersionByMetadataId(@Param("metadataId") String metadataId);
+
+  @Query("SELECT m.title FROM MetadataCollection m WHERE m.metadataId IN :metadataIds")
+  List<String> findTitlesByMetadataIds(@Param("metadataIds") Collection<String> metadataIds);
+
+  /** Pages through the users referenced by all metadata collections, ordered by id. */
   @Query(
       value =
-          "SELECT mc.*, (mc.iso_metadata->>'title') as title FROM metadata_collection mc WHERE mc.iso_metadata->>'title' = :title LIMIT 1",
+          "SELECT new de.terrestris.mde.mde_backend.model.dto.MetadataUserReferences(m.id,"
+              + " m.metadataId, m.ownerId, m.assignedUserId, m.teamMemberIds)"
+              + " FROM MetadataCollection m ORDER BY m.id",
+      countQuery = "SELECT count(m) FROM MetadataCollection m")
+  Page<MetadataUserReferences> findUserReferences(Pageable pageable);
+
+  @Query(
+      value = "SELECT mc.* FROM metadata_collection mc WHERE mc.title = :title LIMIT 1",
       nativeQuery = true)
   Optional<MetadataCollection> findByIsoMetadataTitle(@Param("title") String title);
 
   @Query(
       value =
           """
-      SELECT mc.*, (mc.iso_metadata->>'title') as title
-      FROM metadata_collection mc
-      WHERE EXISTS (
+      SELECT EXISTS (
+          SELECT 1
+          FROM metadata_collection mc
+          WHERE mc.title = :title
+            AND mc.metadata_id <> :metadataId
+      )
+      """,
+      nativeQuery = true)
+  boolean existsTitleInOtherMetadata(
+      @Param("title") String title, @Param("metadataId") String metadataId);
+
+  /**
+   * Checks whether another metadata collection contains a service with the given type and
+   * workspace. Uses the {@code service_identity} table maintained by a database trigger.
+   */
+  @Query(
+      value =
+          """
+      SELECT EXISTS (
           SELECT 1
-          FROM jsonb_array_elements(mc.iso_metadata->'services') s
-          WHERE s->>'serviceType' = :type
-            AND s->>'workspace' = :workspace
-      ) LIMIT 1
+          FROM service_identity si
+          WHERE si.service_type = :type
+            AND si.workspace = :workspace
+            AND si.metadata_id <> :metadataId
+      )
       """,
       nativeQuery = true)
-  Optional<MetadataCollection> findByServiceTypeAndWorkspace(
-      @Param("type") String type, @Param("workspace") String workspace);
+  boolean existsServiceInOtherMetadata(
+      @Param("type") String type,
+      @Param("workspace") String workspace,
+      @Param("metadataId") String metadataId);
 }
@@ -0,0 +1,265 @@
+package de.terrestris.mde.mde_backend.jpa;
+
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.enumeration.WorkflowOperation;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import de.terrestris.mde.mde_backend.model.dto.MetadataCollectionSummary;
+import de.terrestris.mde.mde_backend.model.dto.MetadataFacets;
+import de.terrestris.mde.mde_backend.model.dto.MetadataVersion;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface MetadataCollectionRepositoryCustom {
+
+  /**
+   * Finds the summaries of all metadata collections matching the given specification. Only the
+   * summary columns are selected, the JSON documents are not loaded.
+   *
+   * @param specification the specification to filter and order by
+   * @param myKeycloakId the user to compute the assignment and team flags for
+   * @param pageable the page to fetch
+   */
+  Page<MetadataCollectionSummary> findSummaries(
+      Specification<MetadataCollection> specification, String myKeycloakId, Pageable pageable);
+
+  /**
+   * Finds the summaries of the first metadata collections matching the given specification without
+   * counting all matches.
+   *
+   * @param specification the specification to filter and order by
+   * @param myKeycloakId the user to compute the assignment and team flags for
+   * @param limit the maximum number of summaries to return
+   */
+  List<MetadataCollectionSummary> findSummaries(
+      Specification<MetadataCollection> specification, String myKeycloakId, int limit);
+
+  /**
+   * Counts the metadata collections matching the given specification per facet in a single
+   * aggregation query.
+   *
+   * @param specification the specification to filter by, its ordering is ignored
+   * @param myKeycloakId the user to count the assignments and team memberships for
+   */
+  MetadataFacets findFacets(Specification<MetadataCollection> specification, String myKeycloakId);
+
+  /**
+   * Streams the metadata collections matching the given specification from a database cursor. The
+   * stream has to be consumed and closed within a transaction. The returned entities stay managed,
+   * callers processing large results should detach them.
+   *
+   * @param specification the specification to filter and order by
+   * @param fetchSize the number of rows to fetch from the database at once
+   */
+  Stream<MetadataCollection> stream(Specification<MetadataCollection> specification, int fetchSize);
+
+  /**
+   * Selects some top level keys of one of the JSON documents of a metadata collection, without
+   * loading the whole document. The row is locked until the end of the transaction, so the values
+   * cannot change before they are updated.
+   *
+   * @param metadataId the metadata collection to select from
+   * @param type the JSON document to select from
+   * @param keys the top level keys to select, missing keys are left out
+   * @return the serialized JSON object holding the selected keys, empty if the metadata collection
+   *     does not exist
+   */
+  Optional<String> findJsonValues(String metadataId, MetadataType type, Collection<String> keys);
+
+  /**
+   * Changes values within the JSON documents of a metadata collection in a single UPDATE statement,
+   * without loading and rewriting the documents. The updates are applied in order, the parents of
+   * each path need to exist. Published metadata is set back to in edit, the approval is revoked,
+   * the modification timestamp updated and the version incremented.
+   *
+   * @param metadataId the metadata collection to update
+   * @param version the expected current version, {@code null} to update any version
+   * @param updates the values to set or remove
+   * @return the updated metadata collection, empty if it does not exist
+   * @throws org.springframework.dao.OptimisticLockingFailureException if the metadata collection
+   *     does not have the expected version
+   */
+  Optional<MetadataCollection> updateJsonValues(
+      String metadataId, Long version, List<JsonPathUpdate> updates);
+
+  /**
+   * Takes a lock on the given value until the end of the transaction. Used to serialize the
+   * uniqueness checks of concurrent transactions on the same title or service.
+   *
+   * @param value the value to lock
+   */
+  void lockValue(String value);
+
+  /**
+   * Assigns a metadata collection to a user and adds the user to the team, in a single UPDATE
+   * statement. Published metadata is set back to in edit and the approval revoked.
+   *
+   * @param metadataId the metadata collection to update
+   * @param version the expected current version, {@code null} to update any version
+   * @param userId the user to assign
+   * @param role the responsible role to set, {@code null} to keep the current one
+   * @param currentUserId the user a currently assigned metadata collection may be reassigned by
+   * @param reassign whether a metadata collection assigned to someone else may be reassigned
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist, does not have the expected version or is assigned to someone else
+   */
+  Optional<MetadataVersion> assignUser(
+      String metadataId,
+      Long version,
+      String userId,
+      Role role,
+      String currentUserId,
+      boolean reassign);
+
+  /**
+   * Removes the assigned user of a metadata collection in a single UPDATE statement.
+   *
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> unassignUser(String metadataId, Long version);
+
+  /**
+   * Adds a user to the team of a metadata collection in a single UPDATE statement.
+   *
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> addTeamMember(String metadataId, Long version, String userId);
+
+  /**
+   * Removes a user from the team of a metadata collection in a single UPDATE statement.
+   *
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> removeTeamMember(String metadataId, Long version, String userId);
+
+  /**
+   * Sets the responsible role of a metadata collection in a single UPDATE statement. Setting a role
+   * removes the assigned user, sets published metadata back to in edit and revokes the approval.
+   *
+   * @param role the role to set, {@code null} to only remove the role
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> updateResponsibleRole(String metadataId, Long version, Role role);
+
+  /**
+   * Sets the approval state of a metadata collection in a single UPDATE statement.
+   *
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> updateApproved(String metadataId, Long version, boolean approved);
+
+  /**
+   * Removes users from the owner, the assignment and the team of a metadata collection in a single
+   * UPDATE statement. References to other users are kept, even if they changed meanwhile.
+   *
+   * @param userIds the users to remove
+   * @return the id and the new version of the updated metadata collection, empty if it does not
+   *     exist or does not have the expected version
+   */
+  Optional<MetadataVersion> removeUsers(
+      String metadataId, Long version, Collection<String> userIds);
+
+  /**
+   * Applies a workflow operation to several metadata collections in a single UPDATE statement, with
+   * the same effects as the corresponding single operations.
+   *
+   * @param metadataIds the metadata collections to update
+   * @param operation the operation to apply
+   * @param userId the user to assign, add to or remove from the team
+   * @param role the responsible role to set, when assigning a user {@code null} keeps the current
+   *     one
+   * @param currentUserId the user assigned metadata collections may be reassigned by
+   * @param reassign whether metadata collections assigned to someone else may be reassigned
+   * @return the ids of the updated metadata collections by their metadata ids
+   */
+  Map<String, BigInteger> updateWorkflows(
+      Collection<String> metadataIds,
+      WorkflowOperation operation,
+      String userId,
+      Role role,
+      String currentUserId,
+      boolean reassign);
+
+  /**
+   * Selects the metadata ids of the metadata collections matching the given specification.
+   *
+   * @param specification the specification to filter by
+   * @param limit the maximum number of metadata ids to select
+   */
+  List<String> findMetadataIds(Specification<MetadataCollection> specification, int limit);
+
+  /**
+   * Clones a metadata collection in a single INSERT ... SELECT statement, without loading its JSON
+   * documents. The clone gets a new title and identifier, is marked invalid and is owned by,
+   * assigned to and edited by the given user only.
+   *
+   * @param sourceMetadataId the metadata collection to clone
+   * @param metadataId the metadata id of the clone
+   * @param title the title of the clone
+   * @param resetKeys the top level keys to remove from each document of the clone
+   * @param userId the owner of the clone
+   * @param role the responsible role of the clone, may be {@code null}
+   * @return the id of the clone, empty if the metadata collection to clone does not exist
+   */
+  Optional<BigInteger> insertClone(
+      String sourceMetadataId,
+      String metadataId,
+      String title,
+      Map<MetadataType, List<String>> resetKeys,
+      String userId,
+      Role role);
+
+  /**
+   * Clones several metadata collections in a single INSERT ... SELECT statement, like {@link
+   * #insertClone}. Metadata collections are skipped if a metadata collection with the title of
+   * their clone exists already, so cloning the same metadata collections again only creates the
+   * missing clones. If several metadata collections map to the same title, only the first of them
+   * is cloned. The caller has to lock the titles of the clones with {@link #lockValue}, like the
+   * other title checks, since the title index is not unique in databases with duplicate titles.
+   *
+   * @param metadataIds the metadata ids of the clones by the metadata ids to clone
+   * @param titlePattern the title of the clones, {@code {title}} is replaced by the title of the
+   *     cloned metadata collection
+   * @param resetKeys the top level keys to remove from each document of the clones
+   * @param userId the owner of the clones
+   * @param role the responsible role of the clones, may be {@code null}
+   * @return the ids of the clones by the metadata ids of the cloned metadata collections
+   */
+  Map<String, BigInteger> insertClones(
+      Map<String, String> metadataIds,
+      String titlePattern,
+      Map<MetadataType, List<String>> resetKeys,
+      String userId,
+      Role role);
+
+  /**
+   * Removes the reference to a metadata collection from all of its clones in a single UPDATE
+   * statement.
+   *
+   * @param metadataId the metadata collection the clones were cloned from
+   * @return the metadata ids of the updated clones
+   */
+  List<String> unlinkClones(String metadataId);
+
+  /**
+   * Evicts a metadata collection from the second-level cache and invalidates the cached query
+   * results, now and again after the transaction completed. Needed for changes Hibernate does not
+   * notice, i.e. native updates and updates through other entities mapped to the same row.
+   *
+   * @param id the id of the changed metadata collection
+   */
+  void evictFromCache(BigInteger id);
+}
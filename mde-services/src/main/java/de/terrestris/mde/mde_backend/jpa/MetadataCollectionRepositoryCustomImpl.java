@@ -0,0 +1,697 @@
+package de.terrestris.mde.mde_backend.jpa;
+
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.enumeration.WorkflowOperation;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.Status;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import de.terrestris.mde.mde_backend.model.dto.MetadataCollectionSummary;
+import de.terrestris.mde.mde_backend.model.dto.MetadataFacets;
+import de.terrestris.mde.mde_backend.model.dto.MetadataVersion;
+import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.CacheMode;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.TransactionCompletionCallbacks.AfterCompletionCallback;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+public class MetadataCollectionRepositoryCustomImpl implements MetadataCollectionRepositoryCustom {
+
+  /** Adds {@code :userId} to the team, unless already contained. */
+  private static final String ADD_TEAM_MEMBER =
+      "team_member_ids = CASE WHEN CAST(:userId AS text) = ANY(team_member_ids)"
+          + " THEN team_member_ids"
+          + " ELSE array_append(COALESCE(team_member_ids, '{}'), CAST(:userId AS text)) END";
+
+  /** Sets published metadata back to in edit and revokes the approval. */
+  private static final String REVOKE_PUBLICATION =
+      "approved = CASE WHEN status = 'PUBLISHED' THEN false ELSE approved END"
+          + ", status = CASE WHEN status = 'PUBLISHED' THEN 'IN_EDIT' ELSE status END";
+
+  /** The columns set when cloning a metadata collection. */
+  private static final String CLONE_COLUMNS =
+      "metadata_id, cloned_from_id, iso_metadata, client_metadata, technical_metadata, owner_id,"
+          + " assigned_user_id, team_member_ids, responsible_role, status, created, modified,"
+          + " version";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public Page<MetadataCollectionSummary> findSummaries(
+      Specification<MetadataCollection> specification, String myKeycloakId, Pageable pageable) {
+    TypedQuery<MetadataCollectionSummary> query = createSummaryQuery(specification, myKeycloakId);
+    if (pageable.isPaged()) {
+      query.setFirstResult((int) pageable.getOffset());
+      query.setMaxResults(pageable.getPageSize());
+    }
+
+    return PageableExecutionUtils.getPage(
+        query.getResultList(), pageable, () -> count(specification));
+  }
+
+  @Override
+  public List<MetadataCollectionSummary> findSummaries(
+      Specification<MetadataCollection> specification, String myKeycloakId, int limit) {
+    return createSummaryQuery(specification, myKeycloakId).setMaxResults(limit).getResultList();
+  }
+
+  @Override
+  public MetadataFacets findFacets(
+      Specification<MetadataCollection> specification, String myKeycloakId) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+    Root<MetadataCollection> root = query.from(MetadataCollection.class);
+
+    Predicate predicate = specification.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(List.of());
+
+    // one row holding a conditional count per facet value
+    List<Expression<?>> counts = new ArrayList<>();
+    counts.add(cb.count(root));
+    counts.add(countIf(cb, cb.isTrue(root.get("approved"))));
+    counts.add(countIf(cb, MetadataCollectionSpecification.isAssignedTo(root, cb, myKeycloakId)));
+    counts.add(countIf(cb, MetadataCollectionSpecification.isTeamMember(root, cb, myKeycloakId)));
+    for (Status status : Status.values()) {
+      counts.add(countIf(cb, cb.equal(root.get("status"), status)));
+    }
+    for (Role role : Role.values()) {
+      counts.add(countIf(cb, cb.equal(root.get("responsibleRole"), role)));
+    }
+    query.multiselect(counts.toArray(new Expression<?>[0]));
+
+    Object[] row = entityManager.createQuery(query).getSingleResult();
+
+    MetadataFacets facets = new MetadataFacets();
+    int i = 0;
+    facets.setTotal(toLong(row[i++]));
+    facets.setApproved(toLong(row[i++]));
+    facets.setAssignedToMe(toLong(row[i++]));
+    facets.setTeamMember(toLong(row[i++]));
+    for (Status status : Status.values()) {
+      facets.getStatus().put(status, toLong(row[i++]));
+    }
+    for (Role role : Role.values()) {
+      facets.getResponsibleRole().put(role, toLong(row[i++]));
+    }
+    return facets;
+  }
+
+  private static Expression<Long> countIf(CriteriaBuilder cb, Predicate predicate) {
+    return cb.sum(cb.<Long>selectCase().when(predicate, 1L).otherwise(0L));
+  }
+
+  /** The sum of an empty result is null. */
+  private static long toLong(Object value) {
+    return value == null ? 0 : ((Number) value).longValue();
+  }
+
+  @Override
+  public Stream<MetadataCollection> stream(
+      Specification<MetadataCollection> specification, int fetchSize) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<MetadataCollection> query = cb.createQuery(MetadataCollection.class);
+    Root<MetadataCollection> root = query.from(MetadataCollection.class);
+
+    Predicate predicate = specification.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+
+    return entityManager
+        .createQuery(query)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .getResultStream();
+  }
+
+  @Override
+  public List<String> findMetadataIds(Specification<MetadataCollection> specification, int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<String> query = cb.createQuery(String.class);
+    Root<MetadataCollection> root = query.from(MetadataCollection.class);
+    query.select(root.get("metadataId"));
+
+    Predicate predicate = specification.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(cb.asc(root.get("metadataId")));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  @Override
+  public Optional<String> findJsonValues(
+      String metadataId, MetadataType type, Collection<String> keys) {
+    @SuppressWarnings("unchecked")
+    List<String> result =
+        entityManager
+            .createNativeQuery(
+                "SELECT CAST(COALESCE((SELECT jsonb_object_agg(key, value) FROM jsonb_each("
+                    + column(type)
+                    + ") WHERE key = ANY(:keys)), '{}'::jsonb) AS text)"
+                    + " FROM metadata_collection WHERE metadata_id = :metadataId FOR UPDATE",
+                String.class)
+            .setParameter("keys", keys.toArray(String[]::new))
+            .setParameter("metadataId", metadataId)
+            .getResultList();
+
+    return result.stream().findFirst();
+  }
+
+  @Override
+  public Optional<MetadataCollection> updateJsonValues(
+      String metadataId, Long version, List<JsonPathUpdate> updates) {
+    // the updates of each document are nested into a single expression, applied in order
+    Map<MetadataType, String> documents = new EnumMap<>(MetadataType.class);
+    for (int i = 0; i < updates.size(); i++) {
+      JsonPathUpdate update = updates.get(i);
+      String document =
+          documents.getOrDefault(
+              update.type(), "COALESCE(" + column(update.type()) + ", '{}'::jsonb)");
+      documents.put(
+          update.type(),
+          update.value() == null
+              ? "(" + document + " #- CAST(:path" + i + " AS text[]))"
+              : "jsonb_set("
+                  + document
+                  + ", CAST(:path"
+                  + i
+                  + " AS text[]), CAST(:value"
+                  + i
+                  + " AS jsonb))");
+    }
+    StringBuilder assignments = new StringBuilder();
+    documents.forEach(
+        (type, document) ->
+            assignments.append(column(type)).append(" = ").append(document).append(", "));
+
+    entityManager.flush();
+
+    NativeQuery<?> query =
+        entityManager
+            .createNativeQuery(
+                "UPDATE metadata_collection SET "
+                    + assignments
+                    + "status = CASE WHEN status = 'PUBLISHED' THEN 'IN_EDIT' ELSE status END"
+                    + ", approved = false"
+                    + ", modified = :now"
+                    + ", version = version + 1"
+                    + " WHERE metadata_id = :metadataId"
+                    + " AND (CAST(:version AS bigint) IS NULL OR version = :version)"
+                    + " RETURNING *, version AS updated_version")
+            .unwrap(NativeQuery.class);
+    query.addEntity("m", MetadataCollection.class);
+    query.addScalar("updated_version", Long.class);
+    // only invalidate the cached metadata collections instead of all cache regions
+    query.addSynchronizedEntityClass(MetadataCollection.class);
+    // the returned row is not committed yet and must not be put into the second-level cache
+    query.setCacheMode(CacheMode.IGNORE);
+    query.setParameter("metadataId", metadataId);
+    query.setParameter("now", now());
+    query.setParameter("version", version, Long.class);
+    for (int i = 0; i < updates.size(); i++) {
+      JsonPathUpdate update = updates.get(i);
+      query.setParameter("path" + i, update.path().toArray(String[]::new));
+      if (update.value() != null) {
+        query.setParameter("value" + i, update.value());
+      }
+    }
+
+    List<?> rows = query.getResultList();
+    if (rows.isEmpty()) {
+      if (version != null && exists(metadataId)) {
+        throw new OptimisticLockingFailureException(
+            "MetadataCollection " + metadataId + " does not have the expected version " + version);
+      }
+      return Optional.empty();
+    }
+    Object[] row = (Object[]) rows.getFirst();
+    MetadataCollection metadataCollection = (MetadataCollection) row[0];
+    // the second-level cache does not notice native updates
+    evictFromCache(metadataCollection.getId());
+    // an instance managed before is returned as is instead of being populated from the updated row
+    if (!row[1].equals(metadataCollection.getVersion())) {
+      entityManager.refresh(
+          metadataCollection, Map.of(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS));
+    }
+    return Optional.of(metadataCollection);
+  }
+
+  @Override
+  public Optional<MetadataVersion> assignUser(
+      String metadataId,
+      Long version,
+      String userId,
+      Role role,
+      String currentUserId,
+      boolean reassign) {
+    return updateWorkflow(
+        metadataId,
+        version,
+        workflowUpdate(WorkflowOperation.ASSIGN_USER, userId, role, currentUserId, reassign));
+  }
+
+  @Override
+  public Optional<MetadataVersion> unassignUser(String metadataId, Long version) {
+    return updateWorkflow(
+        metadataId,
+        version,
+        workflowUpdate(WorkflowOperation.UNASSIGN_USER, null, null, null, false));
+  }
+
+  @Override
+  public Optional<MetadataVersion> addTeamMember(String metadataId, Long version, String userId) {
+    return updateWorkflow(
+        metadataId,
+        version,
+        workflowUpdate(WorkflowOperation.ADD_TO_TEAM, userId, null, null, false));
+  }
+
+  @Override
+  public Optional<MetadataVersion> removeTeamMember(
+      String metadataId, Long version, String userId) {
+    return updateWorkflow(
+        metadataId,
+        version,
+        workflowUpdate(WorkflowOperation.REMOVE_FROM_TEAM, userId, null, null, false));
+  }
+
+  @Override
+  public Optional<MetadataVersion> updateResponsibleRole(
+      String metadataId, Long version, Role role) {
+    WorkflowOperation operation =
+        role == null ? WorkflowOperation.UNASSIGN_ROLE : WorkflowOperation.ASSIGN_ROLE;
+    return updateWorkflow(metadataId, version, workflowUpdate(operation, null, role, null, false));
+  }
+
+  @Override
+  public Optional<MetadataVersion> updateApproved(
+      String metadataId, Long version, boolean approved) {
+    WorkflowOperation operation =
+        approved ? WorkflowOperation.APPROVE : WorkflowOperation.DISAPPROVE;
+    return updateWorkflow(metadataId, version, workflowUpdate(operation, null, null, null, false));
+  }
+
+  @Override
+  public Optional<MetadataVersion> removeUsers(
+      String metadataId, Long version, Collection<String> userIds) {
+    return updateWorkflow(
+        metadataId,
+        version,
+        new WorkflowUpdate(
+            "owner_id = CASE WHEN owner_id = ANY(:userIds) THEN NULL ELSE owner_id END"
+                + ", assigned_user_id = CASE WHEN assigned_user_id = ANY(:userIds) THEN NULL"
+                + " ELSE assigned_user_id END"
+                + ", team_member_ids = CASE WHEN team_member_ids IS NULL THEN NULL ELSE ARRAY("
+                + "SELECT m FROM unnest(team_member_ids) AS m WHERE m <> ALL(:userIds)) END",
+            "",
+            Map.of("userIds", userIds.toArray(String[]::new))));
+  }
+
+  @Override
+  public Map<String, BigInteger> updateWorkflows(
+      Collection<String> metadataIds,
+      WorkflowOperation operation,
+      String userId,
+      Role role,
+      String currentUserId,
+      boolean reassign) {
+    Map<String, BigInteger> ids = new LinkedHashMap<>();
+    updateWorkflows(
+            metadataIds, null, workflowUpdate(operation, userId, role, currentUserId, reassign))
+        .forEach((metadataId, updated) -> ids.put(metadataId, updated.id()));
+    return ids;
+  }
+
+  @Override
+  public List<String> unlinkClones(String metadataId) {
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows =
+        entityManager
+            .createNativeQuery(
+                "UPDATE metadata_collection SET cloned_from_id = NULL"
+                    + ", modified = :now, version = version + 1"
+                    + " WHERE cloned_from_id = :metadataId RETURNING id, metadata_id")
+            .setParameter("metadataId", metadataId)
+            .setParameter("now", now())
+            .getResultList();
+
+    List<String> clones = new ArrayList<>();
+    for (Object[] row : rows) {
+      evictFromCache(toBigInteger(row[0]));
+      clones.add((String) row[1]);
+    }
+    return clones;
+  }
+
+  @Override
+  public Optional<BigInteger> insertClone(
+      String sourceMetadataId,
+      String metadataId,
+      String title,
+      Map<MetadataType, List<String>> resetKeys,
+      String userId,
+      Role role) {
+    @SuppressWarnings("unchecked")
+    List<Object> rows =
+        setCloneParameters(
+                entityManager.createNativeQuery(
+                    "INSERT INTO metadata_collection ("
+                        + CLONE_COLUMNS
+                        + ") SELECT "
+                        + cloneValues(":metadataId", "CAST(:title AS text)")
+                        + " FROM metadata_collection s WHERE s.metadata_id = :sourceMetadataId"
+                        + " RETURNING id"),
+                resetKeys,
+                userId,
+                role)
+            .setParameter("metadataId", metadataId)
+            .setParameter("title", title)
+            .setParameter("sourceMetadataId", sourceMetadataId)
+            .getResultList();
+
+    Optional<BigInteger> id =
+        rows.stream().findFirst().map(MetadataCollectionRepositoryCustomImpl::toBigInteger);
+    // invalidates the cached query results
+    id.ifPresent(this::evictFromCache);
+    return id;
+  }
+
+  @Override
+  public Map<String, BigInteger> insertClones(
+      Map<String, String> metadataIds,
+      String titlePattern,
+      Map<MetadataType, List<String>> resetKeys,
+      String userId,
+      Role role) {
+    if (metadataIds.isEmpty()) {
+      return Map.of();
+    }
+    // the clone title is computed once per row, so DISTINCT ON and ORDER BY match, only the first
+    // metadata collection of the batch is cloned if several map to the same title
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows =
+        setCloneParameters(
+                entityManager.createNativeQuery(
+                    "INSERT INTO metadata_collection ("
+                        + CLONE_COLUMNS
+                        + ") SELECT DISTINCT ON (n.title) "
+                        + cloneValues("c.metadata_id", "n.title")
+                        + " FROM unnest(CAST(:sourceMetadataIds AS text[]),"
+                        + " CAST(:metadataIds AS text[])) WITH ORDINALITY"
+                        + " AS c(source_metadata_id, metadata_id, position)"
+                        + " JOIN metadata_collection s ON s.metadata_id = c.source_metadata_id"
+                        + " CROSS JOIN LATERAL (SELECT replace(CAST(:titlePattern AS text),"
+                        + " '{title}', COALESCE(s.title, '')) AS title) n"
+                        + " WHERE NOT EXISTS (SELECT 1 FROM metadata_collection t"
+                        + " WHERE t.title = n.title)"
+                        + " ORDER BY n.title, c.position"
+                        + " ON CONFLICT DO NOTHING RETURNING id, cloned_from_id"),
+                resetKeys,
+                userId,
+                role)
+            .setParameter("titlePattern", titlePattern)
+            .setParameter("sourceMetadataIds", metadataIds.keySet().toArray(String[]::new))
+            .setParameter("metadataIds", metadataIds.values().toArray(String[]::new))
+            .getResultList();
+
+    Map<String, BigInteger> clones = new LinkedHashMap<>();
+    for (Object[] row : rows) {
+      BigInteger id = toBigInteger(row[0]);
+      evictFromCache(id);
+      clones.put((String) row[1], id);
+    }
+    return clones;
+  }
+
+  /**
+   * The values of a clone of the metadata collection {@code s}, in the order of {@link
+   * #CLONE_COLUMNS}.
+   *
+   * @param metadataId the SQL expression of the metadata id of the clone
+   * @param title the SQL expression of the title of the clone
+   */
+  private static String cloneValues(String metadataId, String title) {
+    return metadataId
+        + ", s.metadata_id, (s.iso_metadata - CAST(:isoKeys AS text[]))"
+        + " || jsonb_build_object('title', "
+        + title
+        + ", 'identifier', CAST("
+        + metadataId
+        + " AS text), 'valid', false),"
+        + " s.client_metadata - CAST(:clientKeys AS text[]),"
+        + " s.technical_metadata - CAST(:technicalKeys AS text[]),"
+        + " :userId, :userId, ARRAY[CAST(:userId AS text)],"
+        + " NULLIF(CAST(:role AS text), ''), :status, :now, :now, 0";
+  }
+
+  private static Query setCloneParameters(
+      Query query, Map<MetadataType, List<String>> resetKeys, String userId, Role role) {
+    return query
+        .setParameter("isoKeys", keys(resetKeys, MetadataType.ISO))
+        .setParameter("clientKeys", keys(resetKeys, MetadataType.CLIENT))
+        .setParameter("technicalKeys", keys(resetKeys, MetadataType.TECHNICAL))
+        .setParameter("userId", userId)
+        .setParameter("role", role == null ? "" : role.name())
+        .setParameter("status", Status.NEW.name())
+        .setParameter("now", now());
+  }
+
+  private static String[] keys(Map<MetadataType, List<String>> keys, MetadataType type) {
+    return keys.getOrDefault(type, List.of()).toArray(String[]::new);
+  }
+
+  /**
+   * The SQL of a workflow operation.
+   *
+   * @param assignments the assignments of the columns to update
+   * @param condition an additional condition, starting with {@code AND}
+   * @param parameters the parameters used by the assignments and the condition
+   */
+  private record WorkflowUpdate(
+      String assignments, String condition, Map<String, Object> parameters) {}
+
+  private static WorkflowUpdate workflowUpdate(
+      WorkflowOperation operation,
+      String userId,
+      Role role,
+      String currentUserId,
+      boolean reassign) {
+    return switch (operation) {
+      case ASSIGN_USER ->
+          new WorkflowUpdate(
+              "assigned_user_id = :userId, "
+                  + ADD_TEAM_MEMBER
+                  + ", responsible_role = COALESCE(NULLIF(CAST(:role AS text), ''),"
+                  + " responsible_role), "
+                  + REVOKE_PUBLICATION,
+              " AND (assigned_user_id IS NULL OR assigned_user_id = :currentUserId OR :reassign)",
+              Map.of(
+                  "userId", userId,
+                  "role", role == null ? "" : role.name(),
+                  "currentUserId", currentUserId,
+                  "reassign", reassign));
+      case UNASSIGN_USER -> new WorkflowUpdate("assigned_user_id = NULL", "", Map.of());
+      case ADD_TO_TEAM -> new WorkflowUpdate(ADD_TEAM_MEMBER, "", Map.of("userId", userId));
+      case REMOVE_FROM_TEAM ->
+          new WorkflowUpdate(
+              "team_member_ids = array_remove(team_member_ids, CAST(:userId AS text))",
+              "",
+              Map.of("userId", userId));
+      case ASSIGN_ROLE ->
+          new WorkflowUpdate(
+              "responsible_role = :role, assigned_user_id = NULL, " + REVOKE_PUBLICATION,
+              "",
+              Map.of("role", role.name()));
+      case UNASSIGN_ROLE -> new WorkflowUpdate("responsible_role = NULL", "", Map.of());
+      case APPROVE -> new WorkflowUpdate("approved = true", "", Map.of());
+      case DISAPPROVE -> new WorkflowUpdate("approved = false", "", Map.of());
+    };
+  }
+
+  private Optional<MetadataVersion> updateWorkflow(
+      String metadataId, Long version, WorkflowUpdate update) {
+    return updateWorkflows(List.of(metadataId), version, update).values().stream().findFirst();
+  }
+
+  /**
+   * Updates some workflow columns of metadata collections in a single statement, which also updates
+   * the modification timestamps and increments the versions. The JSON documents are neither loaded
+   * nor written.
+   *
+   * @param version the expected current version, {@code null} to update any version
+   * @return the ids and new versions of the updated metadata collections by their metadata ids
+   */
+  private Map<String, MetadataVersion> updateWorkflows(
+      Collection<String> metadataIds, Long version, WorkflowUpdate update) {
+    NativeQuery<?> query =
+        entityManager
+            .createNativeQuery(
+                "UPDATE metadata_collection SET "
+                    + update.assignments()
+                    + ", modified = :now, version = version + 1"
+                    + " WHERE metadata_id = ANY(:metadataIds)"
+                    + " AND (CAST(:version AS bigint) IS NULL OR version = :version)"
+                    + update.condition()
+                    + " RETURNING id, metadata_id, version")
+            .unwrap(NativeQuery.class);
+    query.setParameter("metadataIds", metadataIds.toArray(String[]::new));
+    query.setParameter("version", version, Long.class);
+    query.setParameter("now", now());
+    update.parameters().forEach(query::setParameter);
+
+    Map<String, MetadataVersion> updated = new LinkedHashMap<>();
+    for (Object row : query.getResultList()) {
+      Object[] columns = (Object[]) row;
+      BigInteger id = toBigInteger(columns[0]);
+      // the second-level cache does not notice native updates
+      evictFromCache(id);
+      updated.put((String) columns[1], new MetadataVersion(id, ((Number) columns[2]).longValue()));
+    }
+    return updated;
+  }
+
+  /**
+   * The timestamp of a native modification, taken from the application clock like the {@link
+   * org.hibernate.annotations.UpdateTimestamp} of entity updates, so all modification timestamps
+   * are comparable regardless of how they were written.
+   */
+  private static OffsetDateTime now() {
+    return OffsetDateTime.now();
+  }
+
+  private static BigInteger toBigInteger(Object value) {
+    return value instanceof BigInteger id ? id : BigInteger.valueOf(((Number) value).longValue());
+  }
+
+  @Override
+  public void evictFromCache(BigInteger id) {
+    // concurrent transactions may cache the previous state until this transaction completed
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    CacheImplementor cache = session.getFactory().getCache();
+    // missing if the query cache is disabled
+    TimestampsCache timestamps = cache.getTimestampsCache();
+    String[] spaces = {"metadata_collection"};
+
+    if (timestamps != null) {
+      timestamps.preInvalidate(spaces, session);
+    }
+    cache.evictEntityData(MetadataCollection.class, id);
+    session
+        .getActionQueue()
+        .registerCallback(
+            (AfterCompletionCallback)
+                (success, completedSession) -> {
+                  cache.evictEntityData(MetadataCollection.class, id);
+                  if (timestamps != null) {
+                    timestamps.invalidate(spaces, completedSession);
+                  }
+                });
+  }
+
+  @Override
+  public void lockValue(String value) {
+    entityManager
+        .createNativeQuery("SELECT CAST(pg_advisory_xact_lock(hashtext(:value)) AS text)")
+        .setParameter("value", value)
+        .getSingleResult();
+  }
+
+  private boolean exists(String metadataId) {
+    return !entityManager
+        .createNativeQuery("SELECT 1 FROM metadata_collection WHERE metadata_id = :metadataId")
+        .setParameter("metadataId", metadataId)
+        .getResultList()
+        .isEmpty();
+  }
+
+  private static String column(MetadataType type) {
+    return switch (type) {
+      case ISO -> "iso_metadata";
+      case CLIENT -> "client_metadata";
+      case TECHNICAL -> "technical_metadata";
+    };
+  }
+
+  private TypedQuery<MetadataCollectionSummary> createSummaryQuery(
+      Specification<MetadataCollection> specification, String myKeycloakId) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<MetadataCollectionSummary> query =
+        cb.createQuery(MetadataCollectionSummary.class);
+    Root<MetadataCollection> root = query.from(MetadataCollection.class);
+
+    Predicate predicate = specification.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+
+    query.select(
+        cb.construct(
+            MetadataCollectionSummary.class,
+            root.get("id"),
+            root.get("metadataId"),
+            root.get("title"),
+            root.get("status"),
+            root.get("approved"),
+            root.get("assignedUserId"),
+            root.get("responsibleRole"),
+            root.get("modified"),
+            cb.<Boolean>selectCase()
+                .when(MetadataCollectionSpecification.isAssignedTo(root, cb, myKeycloakId), true)
+                .otherwise(false),
+            cb.<Boolean>selectCase()
+                .when(MetadataCollectionSpecification.isTeamMember(root, cb, myKeycloakId), true)
+                .otherwise(false)));
+
+    return entityManager.createQuery(query);
+  }
+
+  private long count(Specification<MetadataCollection> specification) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = cb.createQuery(Long.class);
+    Root<MetadataCollection> root = query.from(MetadataCollection.class);
+
+    Predicate predicate = specification.toPredicate(root, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    // the specification also defines the ordering, which is not needed for counting
+    query.orderBy(List.of());
+    query.select(cb.count(root));
+
+    return entityManager.createQuery(query).getSingleResult();
+  }
+}
@@ -12,6 +12,9 @@ import lombok.*;
 import org.hibernate.Hibernate;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 
 @Getter
@@ -23,8 +26,19 @@ import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 @Indexed
 public abstract class BaseMetadata implements Serializable {
 
+  /** The increment of the id sequences, see {@code V2.1.6__pooled_id_sequences.sql}. */
+  public static final int ID_ALLOCATION_SIZE = 50;
+
+  /**
+   * Taken from blocks of {@link #ID_ALLOCATION_SIZE} reserved with a single call of the sequence,
+   * so inserts can be batched.
+   */
   @Column(unique = true, nullable = false)
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "metadata_collection_id_seq")
+  @SequenceGenerator(
+      name = "metadata_collection_id_seq",
+      sequenceName = "metadata_collection_id_seq",
+      allocationSize = ID_ALLOCATION_SIZE)
   @Id
   private BigInteger id;
 
@@ -37,11 +51,28 @@ public abstract class BaseMetadata implements Serializable {
   @UpdateTimestamp
   @Column
   @Setter
+  @GenericField(sortable = Sortable.YES, projectable = Projectable.YES)
   @Schema(
       description = "The timestamp of the last modification.",
       accessMode = Schema.AccessMode.READ_ONLY)
   private OffsetDateTime modified;
 
+  @Version
+  @Column(nullable = false)
+  @Schema(
+      description = "The version, increased with every modification. Returned as ETag.",
+      accessMode = Schema.AccessMode.READ_ONLY)
+  private Long version;
+
+  /**
+   * Forgets the id and version assigned when persisting, so the metadata can be persisted again as
+   * new metadata after the transaction was rolled back.
+   */
+  public void resetGeneratedValues() {
+    id = null;
+    version = null;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -1,5 +1,6 @@
 package de.terrestris.mde.mde_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import de.terrestris.mde.mde_backend.enumeration.Role;
 import de.terrestris.mde.mde_backend.model.json.JsonClientMetadata;
 import de.terrestris.mde.mde_backend.model.json.JsonIsoMetadata;
@@ -8,10 +9,14 @@ import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.*;
 import java.util.Set;
 import lombok.*;
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Type;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.Projectable;
 import org.hibernate.search.engine.backend.types.Sortable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
@@ -19,36 +24,61 @@ import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordFie
 @NoArgsConstructor
 @Entity
 @Table(name = "metadata_collection")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = MetadataCollection.CACHE_REGION)
 @Data
 public class MetadataCollection extends BaseMetadata {
 
-  @Column @Setter private String metadataId;
+  /** The second-level cache region, configured in {@code application.conf}. */
+  public static final String CACHE_REGION = "metadata-collection";
+
+  @Column
+  @Setter
+  @KeywordField(sortable = Sortable.YES, projectable = Projectable.YES)
+  private String metadataId;
 
   @Column @Setter private String clonedFromId;
 
-  @Formula("(iso_metadata->>'title')")
+  /**
+   * Generated from the ISO title by the database. It is not read back after inserts and updates,
+   * which would prevent batching them, but kept in sync by {@link #updateTitle()}.
+   */
+  @Column(insertable = false, updatable = false)
   private String title;
 
-  @Column @Setter private Boolean approved;
+  /** The bounding box of the ISO extent, generated by the database for spatial filtering. */
+  @Column(insertable = false, updatable = false, columnDefinition = "box")
+  @JsonIgnore
+  @ToString.Exclude
+  private String extentBox;
 
   @Column
   @Setter
+  @GenericField(projectable = Projectable.YES, aggregable = Aggregable.YES)
+  private Boolean approved;
+
+  @Column
+  @Setter
+  @KeywordField(projectable = Projectable.YES, aggregable = Aggregable.YES)
   @Enumerated(EnumType.STRING)
   private Status status;
 
   @Column
   @Setter
   @FullTextField
-  @KeywordField(name = "team_member_sort", sortable = Sortable.YES)
+  @KeywordField(name = "team_member_sort", sortable = Sortable.YES, projectable = Projectable.YES)
   private Set<String> teamMemberIds;
 
   @Column @Setter @KeywordField private String ownerId;
 
-  @Column @Setter @KeywordField private String assignedUserId;
+  @Column
+  @Setter
+  @KeywordField(projectable = Projectable.YES)
+  private String assignedUserId;
 
   @Column
   @Setter
-  @KeywordField
+  @KeywordField(projectable = Projectable.YES, aggregable = Aggregable.YES)
   @Enumerated(EnumType.STRING)
   private Role responsibleRole;
 
@@ -78,4 +108,10 @@ public class MetadataCollection extends BaseMetadata {
     setClientMetadata(new JsonClientMetadata());
     setTechnicalMetadata(new JsonTechnicalMetadata());
   }
+
+  @PrePersist
+  @PreUpdate
+  void updateTitle() {
+    title = isoMetadata == null ? null : isoMetadata.getTitle();
+  }
 }
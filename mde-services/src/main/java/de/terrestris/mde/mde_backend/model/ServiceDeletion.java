@@ -13,7 +13,11 @@ import lombok.*;
 public class ServiceDeletion {
 
   @Column(unique = true, nullable = false)
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "service_deletion_id_seq")
+  @SequenceGenerator(
+      name = "service_deletion_id_seq",
+      sequenceName = "service_deletion_id_seq",
+      allocationSize = BaseMetadata.ID_ALLOCATION_SIZE)
   @Id
   private BigInteger id;
 
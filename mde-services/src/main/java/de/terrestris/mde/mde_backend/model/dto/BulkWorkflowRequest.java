@@ -0,0 +1,25 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import de.terrestris.mde.mde_backend.enumeration.WorkflowOperation;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * A workflow operation to apply to several metadata collections, selected either by their ids or by
+ * a query.
+ */
+@Data
+public class BulkWorkflowRequest {
+
+  private WorkflowOperation operation;
+
+  private List<String> metadataIds;
+
+  private QueryConfig query;
+
+  /** The user for {@code ASSIGN_USER}, {@code ADD_TO_TEAM} and {@code REMOVE_FROM_TEAM}. */
+  private String userId;
+
+  /** The role for {@code ASSIGN_ROLE}. */
+  private String role;
+}
@@ -0,0 +1,16 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import de.terrestris.mde.mde_backend.enumeration.BulkWorkflowStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkWorkflowResult {
+
+  private String metadataId;
+
+  private BulkWorkflowStatus status;
+}
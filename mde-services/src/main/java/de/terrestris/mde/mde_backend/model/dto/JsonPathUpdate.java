@@ -0,0 +1,13 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import java.util.List;
+
+/**
+ * A change of a single value within one of the JSON documents of a metadata collection.
+ *
+ * @param type the JSON document to change
+ * @param path the keys and array indexes leading to the value, starting with a top level key
+ * @param value the serialized JSON value to set, {@code null} removes the value
+ */
+public record JsonPathUpdate(MetadataType type, List<String> path, String value) {}
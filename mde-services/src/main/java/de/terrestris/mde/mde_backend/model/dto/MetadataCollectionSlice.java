@@ -0,0 +1,25 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A page of metadata collections fetched by cursor. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetadataCollectionSlice<T> {
+
+  private List<T> content;
+
+  /** The cursor to fetch the next page with, null if this is the last page. */
+  private String nextCursor;
+
+  private boolean hasNext;
+
+  /** The total number of matches, only set if requested. */
+  private Long totalElements;
+}
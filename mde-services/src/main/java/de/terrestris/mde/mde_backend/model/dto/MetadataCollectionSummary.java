@@ -0,0 +1,38 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.model.Status;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** The fields of a metadata collection needed to render the list view. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetadataCollectionSummary {
+
+  private BigInteger id;
+
+  private String metadataId;
+
+  private String title;
+
+  private Status status;
+
+  private Boolean approved;
+
+  private String assignedUserId;
+
+  private Role responsibleRole;
+
+  private OffsetDateTime modified;
+
+  private Boolean assignedToMe;
+
+  private Boolean teamMember;
+}
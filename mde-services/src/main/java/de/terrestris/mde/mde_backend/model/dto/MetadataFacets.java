@@ -0,0 +1,38 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.model.Status;
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * The number of metadata collections matching a query, broken down by the attributes the dashboard
+ * filters by. Every status and role is contained, values without matches are counted as 0.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetadataFacets {
+
+  private long total;
+
+  private Map<Status, Long> status = new EnumMap<>(Status.class);
+
+  private long approved;
+
+  private long assignedToMe;
+
+  private long teamMember;
+
+  private Map<Role, Long> responsibleRole = new EnumMap<>(Role.class);
+
+  public MetadataFacets() {
+    for (Status value : Status.values()) {
+      status.put(value, 0L);
+    }
+    for (Role value : Role.values()) {
+      responsibleRole.put(value, 0L);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import de.terrestris.mde.mde_backend.exception.InvalidCursorException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Position of the last row of a page in the ordering of metadata collection queries. The next page
+ * starts right after this position.
+ *
+ * @param priority the sort priority (0 assigned to me, 1 team member, 2 other)
+ * @param modified the modification timestamp, only relevant for priority 0
+ * @param title the title
+ * @param id the id, used as tie-breaker
+ */
+public record MetadataQueryCursor(
+    int priority, OffsetDateTime modified, String title, BigInteger id) {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Encodes this cursor as an URL safe string. */
+  public String encode() {
+    byte[] json = MAPPER.writeValueAsBytes(this);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+  }
+
+  /**
+   * Decodes a cursor created by {@link #encode()}.
+   *
+   * @throws InvalidCursorException if the cursor cannot be decoded
+   */
+  public static MetadataQueryCursor decode(String cursor) {
+    try {
+      byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+      MetadataQueryCursor decoded = MAPPER.readValue(json, MetadataQueryCursor.class);
+      if (decoded.id() == null || decoded.priority() < 0 || decoded.priority() > 2) {
+        throw new IllegalArgumentException("Incomplete cursor");
+      }
+      return decoded;
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException(cursor, e);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A metadata collection found by the full text search. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetadataSearchHit {
+
+  private MetadataCollectionSummary summary;
+
+  /** The relevance of the hit, hits are ordered by descending score. */
+  private float score;
+
+  /**
+   * The HTML escaped text snippets matching the search, with the matches enclosed in {@code <em>}
+   * tags. Keyed by the path of the field in the ISO metadata, e.g. {@code description} or {@code
+   * keywords.keyword}. Fields without matches are omitted.
+   */
+  private Map<String, List<String>> highlights;
+}
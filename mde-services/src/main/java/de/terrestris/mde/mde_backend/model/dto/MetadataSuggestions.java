@@ -0,0 +1,21 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Typeahead completions for a partial input. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MetadataSuggestions {
+
+  /** The titles of the best matching metadata collections. */
+  private List<String> titles;
+
+  /** The matching keyword values, most frequently used first. */
+  private List<String> keywords;
+}
@@ -0,0 +1,20 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import java.math.BigInteger;
+import java.util.Set;
+
+/**
+ * The users referenced by a metadata collection, loaded without its JSON documents.
+ *
+ * @param id the id of the metadata collection
+ * @param metadataId the metadata id of the metadata collection
+ * @param ownerId the owner, may be {@code null}
+ * @param assignedUserId the assigned user, may be {@code null}
+ * @param teamMemberIds the team members, may be {@code null}
+ */
+public record MetadataUserReferences(
+    BigInteger id,
+    String metadataId,
+    String ownerId,
+    String assignedUserId,
+    Set<String> teamMemberIds) {}
@@ -0,0 +1,11 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import java.math.BigInteger;
+
+/**
+ * A metadata collection updated by a single statement.
+ *
+ * @param id the id of the metadata collection
+ * @param version the version after the update, returned as ETag
+ */
+public record MetadataVersion(BigInteger id, long version) {}
@@ -2,6 +2,8 @@ package de.terrestris.mde.mde_backend.model.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.enumeration.SpatialRelation;
+import de.terrestris.mde.mde_backend.model.json.Extent;
 import java.util.List;
 import lombok.Data;
 
@@ -18,4 +20,13 @@ public class QueryConfig {
   private Boolean isApproved;
 
   private List<Role> assignedRoles;
+
+  /**
+   * Only matches metadata collections whose extent relates to this bounding box (WGS 84 longitude
+   * and latitude). Ignored unless all four coordinates are set.
+   */
+  private Extent extent;
+
+  /** The relation to the {@link #extent}, defaults to {@link SpatialRelation#INTERSECTS}. */
+  private SpatialRelation spatialRelation;
 }
@@ -0,0 +1,22 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Clones a set of metadata collections for a new year ("neuer Jahresstand"), selected either by
+ * their ids or by a query.
+ */
+@Data
+public class RolloverRequest {
+
+  private List<String> metadataIds;
+
+  private QueryConfig query;
+
+  /**
+   * The title of the clones, {@code {title}} is replaced by the title of the cloned metadata
+   * collection, e.g. {@code "{title} 2027"}.
+   */
+  private String titlePattern;
+}
@@ -0,0 +1,26 @@
+package de.terrestris.mde.mde_backend.model.dto.sse;
+
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import java.time.Instant;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * The progress of a background job, sent as server sent event and returned as job status.
+ * Subclasses add the job specific progress.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public abstract class JobMessage extends SseMessage {
+
+  private JobStatus status;
+
+  private Instant started;
+
+  private Instant finished;
+
+  /** The number of items to process, {@code null} while still being determined. */
+  private Long total;
+}
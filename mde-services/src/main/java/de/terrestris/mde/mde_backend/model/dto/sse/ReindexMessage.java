@@ -0,0 +1,16 @@
+package de.terrestris.mde.mde_backend.model.dto.sse;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/** The progress of a reindexing job, the total is the number of entities to index. */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ReindexMessage extends JobMessage {
+
+  private long indexed;
+
+  private double entitiesPerSecond;
+}
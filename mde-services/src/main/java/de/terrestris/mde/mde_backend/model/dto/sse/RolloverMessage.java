@@ -0,0 +1,24 @@
+package de.terrestris.mde.mde_backend.model.dto.sse;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/** The progress of a rollover job, the total is the number of metadata collections to clone. */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class RolloverMessage extends JobMessage {
+
+  /** The number of metadata collections processed so far. */
+  private long processed;
+
+  /** The number of clones created. */
+  private long cloned;
+
+  /**
+   * The number of metadata collections skipped, because a metadata collection with the title of the
+   * clone exists already or they were deleted meanwhile.
+   */
+  private long skipped;
+}
@@ -2,12 +2,15 @@ package de.terrestris.mde.mde_backend.model.json;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
 import de.terrestris.mde.mde_backend.model.json.codelists.CI_OnLineFunctionCode;
 import de.terrestris.mde.mde_backend.model.json.codelists.CI_RoleCode;
 import java.io.Serializable;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.jspecify.annotations.Nullable;
 
 @Data
@@ -19,9 +22,17 @@ public class Contact implements Serializable {
   // mde-client related id
   private UUID id;
 
-  @Nullable private String name;
-
-  @Nullable private String organisation;
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @Nullable
+  private String name;
+
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @Nullable
+  private String organisation;
 
   @Nullable private String contact;
 
@@ -6,6 +6,7 @@ import java.io.Serializable;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.jspecify.annotations.Nullable;
 
 @Data
@@ -17,11 +18,11 @@ public class Extent implements Serializable {
 
   @Nullable private String crs;
 
-  @Nullable private Double minx;
+  @Nullable @GenericField private Double minx;
 
-  @Nullable private Double miny;
+  @Nullable @GenericField private Double miny;
 
-  @Nullable private Double maxx;
+  @Nullable @GenericField private Double maxx;
 
-  @Nullable private Double maxy;
+  @Nullable @GenericField private Double maxy;
 }
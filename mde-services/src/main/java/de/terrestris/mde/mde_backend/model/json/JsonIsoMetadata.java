@@ -5,6 +5,7 @@ import static com.fasterxml.jackson.annotation.JsonFormat.Shape.STRING;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
 import de.terrestris.mde.mde_backend.enumeration.MetadataProfile;
 import de.terrestris.mde.mde_backend.model.json.codelists.MD_MaintenanceFrequencyCode;
 import de.terrestris.mde.mde_backend.model.json.codelists.MD_SpatialRepresentationTypeCode;
@@ -16,10 +17,14 @@ import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.engine.backend.types.ObjectStructure;
+import org.hibernate.search.engine.backend.types.Projectable;
 import org.hibernate.search.engine.backend.types.Sortable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.IndexedEmbedded;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.jspecify.annotations.Nullable;
 
 @Data
@@ -89,16 +94,43 @@ public class JsonIsoMetadata implements CommonFields {
 
   @Nullable
   @FullTextField()
-  @GenericField(name = "title_sort", sortable = Sortable.YES)
+  @FullTextField(
+      name = "title_de",
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @FullTextField(
+      name = "title_suggest",
+      analyzer = MdeLuceneAnalysisConfigurer.AUTOCOMPLETE_ANALYZER,
+      searchAnalyzer = MdeLuceneAnalysisConfigurer.AUTOCOMPLETE_QUERY_ANALYZER)
+  @GenericField(name = "title_sort", sortable = Sortable.YES, projectable = Projectable.YES)
+  @KeywordField(
+      name = "title_lower",
+      normalizer = MdeLuceneAnalysisConfigurer.LOWERCASE_NORMALIZER,
+      sortable = Sortable.YES)
   private String title;
 
-  @Nullable private String description;
+  @Nullable
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  private String description;
 
   @Nullable private List<Service> services;
 
-  @Nullable private Map<String, List<Keyword>> keywords = new HashMap<>();
+  /**
+   * Indexed twice: flattened into the metadata document for the full text search, and each keyword
+   * as a nested document of its own for the keyword suggestions, so only the matching keywords are
+   * aggregated.
+   */
+  @Nullable
+  @IndexedEmbedded(includePaths = "keyword")
+  @IndexedEmbedded(
+      name = "keyword_suggestions",
+      structure = ObjectStructure.NESTED,
+      includePaths = {"keyword_suggest", "keyword_value"})
+  private Map<String, List<Keyword>> keywords = new HashMap<>();
 
-  @Nullable private Map<String, Thesaurus> thesauri = new HashMap<>();
+  @Nullable @IndexedEmbedded private Map<String, Thesaurus> thesauri = new HashMap<>();
 
   private boolean highValueDataset = false;
 
@@ -133,9 +165,9 @@ public class JsonIsoMetadata implements CommonFields {
 
   @Nullable private String capabilities;
 
-  @Nullable private List<Contact> contacts;
+  @Nullable @IndexedEmbedded private List<Contact> contacts;
 
-  @Nullable private List<Contact> pointsOfContact;
+  @Nullable @IndexedEmbedded private List<Contact> pointsOfContact;
 
   @Nullable private Integer scale;
 
@@ -145,7 +177,7 @@ public class JsonIsoMetadata implements CommonFields {
 
   @Nullable private String crs;
 
-  @Nullable private Extent extent;
+  @Nullable @IndexedEmbedded private Extent extent;
 
   @Nullable
   private MD_MaintenanceFrequencyCode maintenanceFrequency = MD_MaintenanceFrequencyCode.asNeeded;
@@ -160,7 +192,11 @@ public class JsonIsoMetadata implements CommonFields {
 
   private boolean valid = false;
 
-  @Nullable private List<String> topicCategory;
+  @Nullable
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  private List<String> topicCategory;
 
   @Nullable private Privacy privacy = Privacy.NONE;
 
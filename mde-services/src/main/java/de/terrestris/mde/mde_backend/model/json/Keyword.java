@@ -2,10 +2,15 @@ package de.terrestris.mde.mde_backend.model.json;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
 import java.io.Serializable;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.engine.backend.types.Aggregable;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.jspecify.annotations.Nullable;
 
 @Data
@@ -17,5 +22,14 @@ public class Keyword implements Serializable {
 
   @Nullable private String namespace;
 
-  @Nullable private String keyword;
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @FullTextField(
+      name = "keyword_suggest",
+      analyzer = MdeLuceneAnalysisConfigurer.AUTOCOMPLETE_ANALYZER,
+      searchAnalyzer = MdeLuceneAnalysisConfigurer.AUTOCOMPLETE_QUERY_ANALYZER)
+  @KeywordField(name = "keyword_value", aggregable = Aggregable.YES)
+  @Nullable
+  private String keyword;
 }
@@ -2,6 +2,7 @@ package de.terrestris.mde.mde_backend.model.json;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.UUID;
@@ -9,6 +10,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.search.engine.backend.types.Highlightable;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.jspecify.annotations.Nullable;
@@ -26,7 +28,11 @@ public class Lineage implements Serializable {
 
   @KeywordField @Nullable private String identifier;
 
-  @FullTextField @Nullable private String title;
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @Nullable
+  private String title;
 
   @Nullable private Instant date;
 
@@ -5,12 +5,15 @@ import static com.fasterxml.jackson.annotation.JsonFormat.Shape.STRING;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
 import de.terrestris.mde.mde_backend.model.json.codelists.CI_DateTypeCode;
 import java.io.Serializable;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.engine.backend.types.Highlightable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
 import org.jspecify.annotations.Nullable;
 
 @Data
@@ -20,7 +23,11 @@ import org.jspecify.annotations.Nullable;
 @AllArgsConstructor
 public class Thesaurus implements Serializable {
 
-  @Nullable private String title;
+  @FullTextField(
+      analyzer = MdeLuceneAnalysisConfigurer.GERMAN_ANALYZER,
+      highlightable = Highlightable.UNIFIED)
+  @Nullable
+  private String title;
 
   @Nullable private String namespace;
 
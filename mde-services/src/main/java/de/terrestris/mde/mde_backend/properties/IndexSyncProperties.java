@@ -0,0 +1,33 @@
+package de.terrestris.mde.mde_backend.properties;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Synchronization of the search indexes of multiple backend instances sharing one database. Every
+ * instance polls the {@code index_change_log} table and applies the changes to its own index.
+ */
+@Data
+@Component
+@Configuration
+@ConfigurationProperties(prefix = "index-sync")
+public class IndexSyncProperties {
+
+  /** Whether to poll the changes of the other instances, required when running more than one. */
+  private Boolean enabled = false;
+
+  /** The delay between two polls. */
+  private Duration pollInterval = Duration.ofSeconds(5);
+
+  /**
+   * How far each poll looks back before the previous one. Must be longer than the longest
+   * transaction changing metadata, as changes only become visible on commit.
+   */
+  private Duration lookback = Duration.ofMinutes(1);
+
+  /** How long the entries of the change log are kept. */
+  private Duration retention = Duration.ofDays(1);
+}
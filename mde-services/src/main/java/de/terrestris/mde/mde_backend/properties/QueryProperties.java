@@ -0,0 +1,24 @@
+package de.terrestris.mde.mde_backend.properties;
+
+import de.terrestris.mde.mde_backend.enumeration.QueryEngine;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@Configuration
+@ConfigurationProperties(prefix = "query")
+public class QueryProperties {
+  private QueryEngine engine = QueryEngine.LUCENE;
+
+  /** Whether to check the query plans of the title indexes on startup. */
+  private Boolean indexCheck = true;
+
+  /**
+   * Whether to rebuild the whole search index on startup instead of only catching up with the
+   * changes since the last startup.
+   */
+  private Boolean indexRebuild = false;
+}
@@ -0,0 +1,23 @@
+package de.terrestris.mde.mde_backend.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Component;
+
+/** Tuning of the Hibernate Search mass indexer used for full reindexing. */
+@Data
+@Component
+@Configuration
+@ConfigurationProperties(prefix = "reindex")
+public class ReindexProperties {
+
+  /** The number of entity types indexed in parallel. */
+  private Integer typesToIndexInParallel = 1;
+
+  /** The number of entities loaded from the database per batch. */
+  private Integer batchSizeToLoadObjects = 25;
+
+  /** The number of threads loading entities and building documents per entity type. */
+  private Integer threadsToLoadObjects = 6;
+}
@@ -0,0 +1,43 @@
+package de.terrestris.mde.mde_backend.schedule;
+
+import de.terrestris.mde.mde_backend.properties.IndexSyncProperties;
+import de.terrestris.mde.mde_backend.service.IndexSyncService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Log4j2
+@Component
+public class IndexSyncScheduler {
+
+  @Autowired private IndexSyncService indexSyncService;
+
+  @Autowired private IndexSyncProperties indexSyncProperties;
+
+  @Scheduled(
+      initialDelayString = "${index-sync.poll-interval:5s}",
+      fixedDelayString = "${index-sync.poll-interval:5s}")
+  public void poll() {
+    if (!Boolean.TRUE.equals(indexSyncProperties.getEnabled())) {
+      return;
+    }
+    try {
+      indexSyncService.poll();
+    } catch (Exception e) {
+      log.error("Error while synchronizing the search index: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+    }
+  }
+
+  // The change log is filled in any case, so it is cleaned up even when not polling
+  @Scheduled(cron = "0 30 * * * *")
+  public void cleanup() {
+    try {
+      indexSyncService.cleanup();
+    } catch (Exception e) {
+      log.error("Error while cleaning up the index change log: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+    }
+  }
+}
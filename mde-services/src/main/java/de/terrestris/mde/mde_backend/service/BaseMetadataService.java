@@ -12,7 +12,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Log4j2
@@ -29,7 +28,7 @@ public abstract class BaseMetadataService<
 
   // TODO Remove
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
+  @Transactional
   public S update(BigInteger id, S entity) throws IOException {
     Optional<S> persistedEntityOpt = repository.findById(id);
     return repository.save(entity);
@@ -37,7 +36,7 @@ public abstract class BaseMetadataService<
 
   // TODO Check
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
+  @Transactional
   public void delete(S entity) {
     repository.delete(entity);
   }
@@ -0,0 +1,99 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.properties.IndexSyncProperties;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Applies the changes logged in the {@code index_change_log} table (filled by a database trigger)
+ * to the search index of this instance, so the indexes of multiple instances sharing one database
+ * converge. Each poll reads the log entries of a window reaching {@link
+ * IndexSyncProperties#getLookback()} before the previous poll; entries already applied are skipped.
+ * Changed metadata are evicted from the second-level cache of this instance as well.
+ */
+@Log4j2
+@Service
+public class IndexSyncService {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private SearchService searchService;
+
+  @Autowired private IndexSyncProperties indexSyncProperties;
+
+  private OffsetDateTime since;
+
+  private Set<Long> applied = new HashSet<>();
+
+  @Transactional(readOnly = true)
+  public synchronized void poll() {
+    // the changes are caught up after the reindexing, as the window is not moved meanwhile
+    if (searchService.isReindexing()) {
+      return;
+    }
+    OffsetDateTime now =
+        (OffsetDateTime)
+            entityManager
+                .createNativeQuery("SELECT clock_timestamp()", OffsetDateTime.class)
+                .getSingleResult();
+    if (since == null) {
+      since = now.minus(indexSyncProperties.getLookback());
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Object[]> entries =
+        entityManager
+            .createNativeQuery(
+                "SELECT id, metadata_collection_id FROM index_change_log"
+                    + " WHERE changed > :since ORDER BY id")
+            .setParameter("since", since)
+            .getResultList();
+
+    Set<Long> entryIds = new HashSet<>();
+    Set<BigInteger> changed = new LinkedHashSet<>();
+    for (Object[] entry : entries) {
+      long entryId = ((Number) entry[0]).longValue();
+      entryIds.add(entryId);
+      if (!applied.contains(entryId)) {
+        changed.add(BigInteger.valueOf(((Number) entry[1]).longValue()));
+      }
+    }
+
+    if (!changed.isEmpty()) {
+      // the second-level cache of this instance may still hold the previous state
+      Cache cache = entityManager.getEntityManagerFactory().getCache();
+      changed.forEach(id -> cache.evict(MetadataCollection.class, id));
+      cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+      log.debug("Applying {} changed metadata to the search index", changed.size());
+      searchService.reindex(changed);
+    }
+    // entries older than the next window will not be read again
+    applied = entryIds;
+    since = now.minus(indexSyncProperties.getLookback());
+  }
+
+  /** Removes the change log entries older than {@link IndexSyncProperties#getRetention()}. */
+  @Transactional
+  public void cleanup() {
+    int deleted =
+        entityManager
+            .createNativeQuery(
+                "DELETE FROM index_change_log"
+                    + " WHERE changed < clock_timestamp() - make_interval(secs => :seconds)")
+            .setParameter("seconds", indexSyncProperties.getRetention().toSeconds())
+            .executeUpdate();
+    log.debug("Removed {} entries from the index change log", deleted);
+  }
+}
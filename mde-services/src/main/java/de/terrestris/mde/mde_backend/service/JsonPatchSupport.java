@@ -0,0 +1,161 @@
+package de.terrestris.mde.mde_backend.service;
+
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import tools.jackson.core.JsonPointer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Support for RFC 6902 JSON patches on the JSON documents of a metadata collection. The pointers of
+ * a patch start with the property of the document in the metadata collection, e.g. {@code
+ * /isoMetadata/services/3/featureTypes/0/columns/12/alias}.
+ */
+final class JsonPatchSupport {
+
+  static final Map<String, MetadataType> DOCUMENTS =
+      Map.of(
+          "isoMetadata", MetadataType.ISO,
+          "clientMetadata", MetadataType.CLIENT,
+          "technicalMetadata", MetadataType.TECHNICAL);
+
+  private JsonPatchSupport() {}
+
+  /**
+   * Splits a patch into the operations on each document, with pointers relative to the document.
+   *
+   * @throws IllegalArgumentException if the patch is no list of operations, an operation does not
+   *     point into a document or moves a value between documents
+   */
+  static Map<MetadataType, ArrayNode> split(JsonNode patch) {
+    if (!patch.isArray()) {
+      throw new IllegalArgumentException("A JSON patch has to be a list of operations");
+    }
+    Map<MetadataType, ArrayNode> result = new EnumMap<>(MetadataType.class);
+    for (JsonNode operation : patch) {
+      if (!operation.isObject() || !operation.path("path").isString()) {
+        throw new IllegalArgumentException("Invalid JSON patch operation: " + operation);
+      }
+      ObjectNode relative = ((ObjectNode) operation).deepCopy();
+      JsonPointer path = JsonPointer.compile(operation.get("path").asString());
+      MetadataType type = document(path);
+      relative.put("path", path.tail().toString());
+      if (operation.path("from").isString()) {
+        JsonPointer from = JsonPointer.compile(operation.get("from").asString());
+        if (document(from) != type) {
+          throw new IllegalArgumentException(
+              "Values cannot be moved or copied between documents: " + operation);
+        }
+        relative.put("from", from.tail().toString());
+      }
+      result.computeIfAbsent(type, t -> JsonNodeFactory.instance.arrayNode()).add(relative);
+    }
+    return result;
+  }
+
+  private static MetadataType document(JsonPointer pointer) {
+    MetadataType type = pointer.matches() ? null : DOCUMENTS.get(pointer.getMatchingProperty());
+    if (type == null || pointer.tail().matches()) {
+      throw new IllegalArgumentException(
+          "JSON patch pointers have to point into one of "
+              + DOCUMENTS.keySet()
+              + ", got: "
+              + pointer);
+    }
+    return type;
+  }
+
+  /** Returns the top level keys of the document touched by the given operations. */
+  static Set<String> keys(ArrayNode operations) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (JsonNode operation : operations) {
+      keys.add(JsonPointer.compile(operation.get("path").asString()).getMatchingProperty());
+      if (operation.path("from").isString()) {
+        keys.add(JsonPointer.compile(operation.get("from").asString()).getMatchingProperty());
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Applies the operations to a document.
+   *
+   * @throws IOException if the operations are malformed
+   * @throws JsonPatchException if an operation cannot be applied, e.g. a test fails
+   */
+  static JsonNode apply(ArrayNode operations, JsonNode document, ObjectMapper objectMapper)
+      throws IOException, JsonPatchException {
+    // the patch library is based on Jackson 2
+    JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(operations.toString()));
+    return objectMapper.readTree(
+        patch.apply(JsonLoader.fromString(document.toString())).toString());
+  }
+
+  /**
+   * Collects the updates turning the previous value at the given path into the updated one. Objects
+   * and arrays of the same size are compared member by member, so only the values that actually
+   * changed are written.
+   *
+   * @param type the document containing the value
+   * @param path the path of the value
+   * @param previous the previous value, {@code null} if missing
+   * @param updated the updated value, {@code null} to remove it
+   * @param updates the list to add the updates to
+   */
+  static void diff(
+      MetadataType type,
+      List<String> path,
+      JsonNode previous,
+      JsonNode updated,
+      List<JsonPathUpdate> updates) {
+    if (updated == null) {
+      if (previous != null) {
+        updates.add(new JsonPathUpdate(type, path, null));
+      }
+    } else if (updated.equals(previous)) {
+      // unchanged
+    } else if (previous != null && previous.isObject() && updated.isObject()) {
+      for (String name : previous.propertyNames()) {
+        if (!updated.has(name)) {
+          updates.add(new JsonPathUpdate(type, append(path, name), null));
+        }
+      }
+      for (Map.Entry<String, JsonNode> property : updated.properties()) {
+        diff(
+            type,
+            append(path, property.getKey()),
+            previous.get(property.getKey()),
+            property.getValue(),
+            updates);
+      }
+    } else if (previous != null
+        && previous.isArray()
+        && updated.isArray()
+        && previous.size() == updated.size()) {
+      for (int i = 0; i < updated.size(); i++) {
+        diff(type, append(path, String.valueOf(i)), previous.get(i), updated.get(i), updates);
+      }
+    } else {
+      updates.add(new JsonPathUpdate(type, path, updated.toString()));
+    }
+  }
+
+  private static List<String> append(List<String> path, String key) {
+    List<String> result = new ArrayList<>(path);
+    result.add(key);
+    return List.copyOf(result);
+  }
+}
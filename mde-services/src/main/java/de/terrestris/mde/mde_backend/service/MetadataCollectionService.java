@@ -3,8 +3,12 @@ package de.terrestris.mde.mde_backend.service;
 import static de.terrestris.mde.mde_backend.service.IsoGenerator.replaceValues;
 
 import com.github.fge.jsonpatch.JsonPatchException;
+import de.terrestris.mde.mde_backend.enumeration.BulkWorkflowStatus;
 import de.terrestris.mde.mde_backend.enumeration.MetadataProfile;
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.enumeration.QueryEngine;
 import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.enumeration.WorkflowOperation;
 import de.terrestris.mde.mde_backend.exception.DuplicateServiceIdentificationException;
 import de.terrestris.mde.mde_backend.exception.DuplicateTitleException;
 import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
@@ -12,34 +16,47 @@ import de.terrestris.mde.mde_backend.jpa.ServiceDeletionRepository;
 import de.terrestris.mde.mde_backend.model.MetadataCollection;
 import de.terrestris.mde.mde_backend.model.ServiceDeletion;
 import de.terrestris.mde.mde_backend.model.Status;
+import de.terrestris.mde.mde_backend.model.dto.BulkWorkflowRequest;
+import de.terrestris.mde.mde_backend.model.dto.BulkWorkflowResult;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import de.terrestris.mde.mde_backend.model.dto.MetadataCollectionSlice;
+import de.terrestris.mde.mde_backend.model.dto.MetadataCollectionSummary;
+import de.terrestris.mde.mde_backend.model.dto.MetadataFacets;
+import de.terrestris.mde.mde_backend.model.dto.MetadataJsonPatch;
+import de.terrestris.mde.mde_backend.model.dto.MetadataQueryCursor;
+import de.terrestris.mde.mde_backend.model.dto.MetadataSearchHit;
+import de.terrestris.mde.mde_backend.model.dto.MetadataSuggestions;
 import de.terrestris.mde.mde_backend.model.dto.QueryConfig;
 import de.terrestris.mde.mde_backend.model.dto.UserData;
 import de.terrestris.mde.mde_backend.model.json.*;
+import de.terrestris.mde.mde_backend.properties.QueryProperties;
 import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.function.Function;
 import javax.imageio.ImageIO;
 import lombok.extern.log4j.Log4j2;
 import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
-import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.node.ObjectNode;
@@ -49,6 +66,39 @@ import tools.jackson.databind.node.ObjectNode;
 public class MetadataCollectionService
     extends BaseMetadataService<MetadataCollectionRepository, MetadataCollection> {
 
+  /** The maximum number of metadata collections a bulk workflow operation may update. */
+  public static final int BULK_LIMIT = 1000;
+
+  /**
+   * The top level keys of each document removed when cloning a metadata collection, according to
+   * metadatenprofil-berlin.xlsx column "neuer Jahresstand".
+   */
+  static final Map<MetadataType, List<String>> CLONE_RESET_KEYS =
+      Map.of(
+          MetadataType.ISO,
+          List.of(
+              "fileIdentifier",
+              "description",
+              "inspireTheme",
+              "inspireAnnexVersion",
+              "created",
+              "published",
+              "modified",
+              "validFrom",
+              "validTo",
+              "scale",
+              "resolutions",
+              "preview",
+              "technicalDescription",
+              "contentDescription",
+              "contentDescriptions",
+              "lineage",
+              "services"),
+          MetadataType.CLIENT,
+          List.of("relatedTopics", "comments"),
+          MetadataType.TECHNICAL,
+          List.of("deliveredCrs"));
+
   @PersistenceContext private EntityManager entityManager;
 
   @Autowired @Lazy ObjectMapper objectMapper;
@@ -57,6 +107,14 @@ public class MetadataCollectionService
 
   @Autowired private ServiceDeletionRepository serviceDeletionRepository;
 
+  @Autowired private MetadataCollectionWorkflowService workflowService;
+
+  @Autowired private MetadataSearchService metadataSearchService;
+
+  @Autowired private SearchService searchService;
+
+  @Autowired private QueryProperties queryProperties;
+
   @PreAuthorize("isAuthenticated()")
   @Transactional(readOnly = true)
   public Page<MetadataCollection> query(QueryConfig config, Pageable pageable) {
@@ -64,12 +122,159 @@ public class MetadataCollectionService
     String myKeycloakId =
         ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
 
+    if (queryProperties.getEngine() == QueryEngine.LUCENE) {
+      return metadataSearchService.query(config, myKeycloakId, pageable);
+    }
+
     Specification<MetadataCollection> specification =
         MetadataCollectionSpecification.searchMetadata(config, myKeycloakId);
 
     return findAllBy(specification, pageable);
   }
 
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public Page<MetadataCollectionSummary> querySummaries(QueryConfig config, Pageable pageable) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    if (queryProperties.getEngine() == QueryEngine.LUCENE) {
+      return metadataSearchService.querySummaries(config, myKeycloakId, pageable);
+    }
+
+    Specification<MetadataCollection> specification =
+        MetadataCollectionSpecification.searchMetadata(config, myKeycloakId);
+
+    return repository.findSummaries(specification, myKeycloakId, pageable);
+  }
+
+  /**
+   * Searches the full text of the metadata collections, see {@link MetadataSearchService#search}.
+   * Always served by the search index.
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public Page<MetadataSearchHit> search(String text, Pageable pageable) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    return metadataSearchService.search(text, myKeycloakId, pageable);
+  }
+
+  /** Suggests titles and keywords, see {@link MetadataSearchService#suggest}. */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataSuggestions suggest(String text, int size) {
+    return metadataSearchService.suggest(text, size);
+  }
+
+  /** Counts the metadata collections matching the given config per facet. */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataFacets facets(QueryConfig config) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    if (queryProperties.getEngine() == QueryEngine.LUCENE) {
+      return metadataSearchService.facets(config, myKeycloakId);
+    }
+
+    Specification<MetadataCollection> specification =
+        MetadataCollectionSpecification.searchMetadata(config, myKeycloakId);
+
+    return repository.findFacets(specification, myKeycloakId);
+  }
+
+  /**
+   * Fetches the metadata collections following the given cursor. Always served by the database, the
+   * total number of matches is only counted if requested.
+   *
+   * @param cursor the cursor of the previous page, null or empty for the first page
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataCollectionSlice<MetadataCollection> queryAfter(
+      QueryConfig config, String cursor, int size, boolean withTotal) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    Specification<MetadataCollection> specification =
+        MetadataCollectionSpecification.searchMetadata(config, myKeycloakId);
+
+    List<MetadataCollection> rows =
+        repository.findBy(
+            afterCursor(specification, cursor, myKeycloakId), query -> query.limit(size + 1).all());
+
+    return toSlice(
+        rows,
+        size,
+        metadataCollection -> {
+          int priority = 2;
+          if (myKeycloakId.equals(metadataCollection.getAssignedUserId())) {
+            priority = 0;
+          } else if (metadataCollection.getTeamMemberIds() != null
+              && metadataCollection.getTeamMemberIds().contains(myKeycloakId)) {
+            priority = 1;
+          }
+          return new MetadataQueryCursor(
+              priority,
+              metadataCollection.getModified(),
+              metadataCollection.getTitle(),
+              metadataCollection.getId());
+        },
+        withTotal ? repository.count(specification) : null);
+  }
+
+  /** Like {@link #queryAfter}, but returns the summaries only. */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataCollectionSlice<MetadataCollectionSummary> querySummariesAfter(
+      QueryConfig config, String cursor, int size, boolean withTotal) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    Specification<MetadataCollection> specification =
+        MetadataCollectionSpecification.searchMetadata(config, myKeycloakId);
+
+    List<MetadataCollectionSummary> rows =
+        repository.findSummaries(
+            afterCursor(specification, cursor, myKeycloakId), myKeycloakId, size + 1);
+
+    return toSlice(
+        rows,
+        size,
+        summary ->
+            new MetadataQueryCursor(
+                summary.getAssignedToMe() ? 0 : summary.getTeamMember() ? 1 : 2,
+                summary.getModified(),
+                summary.getTitle(),
+                summary.getId()),
+        withTotal ? repository.count(specification) : null);
+  }
+
+  private static Specification<MetadataCollection> afterCursor(
+      Specification<MetadataCollection> specification, String cursor, String myKeycloakId) {
+    if (cursor == null || cursor.isEmpty()) {
+      return specification;
+    }
+    return specification.and(
+        MetadataCollectionSpecification.after(MetadataQueryCursor.decode(cursor), myKeycloakId));
+  }
+
+  /** Builds a slice from up to size + 1 rows, the additional row indicates a next page. */
+  private static <T> MetadataCollectionSlice<T> toSlice(
+      List<T> rows, int size, Function<T, MetadataQueryCursor> toCursor, Long total) {
+    boolean hasNext = rows.size() > size;
+    List<T> content = hasNext ? rows.subList(0, size) : rows;
+    String nextCursor = hasNext ? toCursor.apply(content.getLast()).encode() : null;
+    return new MetadataCollectionSlice<>(content, nextCursor, hasNext, total);
+  }
+
   @PreAuthorize("isAuthenticated()")
   @Transactional(readOnly = true)
   public Optional<MetadataCollection> findOneByMetadataId(String metadataId) {
@@ -77,9 +282,10 @@ public class MetadataCollectionService
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
+  @Transactional
   public String create(String title) {
     // Check for unique title
+    repository.lockValue("title:" + title);
     if (repository.findByIsoMetadataTitle(title).isPresent()) {
       throw new DuplicateTitleException(title);
     }
@@ -103,117 +309,57 @@ public class MetadataCollectionService
 
     // User and role assignment. Set responsibleRole, ownerId, assignedUserId,
     // teamMemberIds.
-    Role roleToSet = null;
-    List<String> roleNames = authorities.stream().map(GrantedAuthority::getAuthority).toList();
-    if (roleNames.contains("ROLE_MDEEDITOR")) {
-      roleToSet = Role.MdeEditor;
-    } else if (roleNames.contains("ROLE_MDEDATAOWNER")) {
-      roleToSet = Role.MdeDataOwner;
-    }
+    Role roleToSet = getCreatorRole(authorities);
     if (roleToSet != null) {
       metadataCollection.setResponsibleRole(roleToSet);
     }
     metadataCollection.setAssignedUserId(myKeycloakId);
     metadataCollection.setOwnerId(myKeycloakId);
+    metadataCollection.setTeamMemberIds(new HashSet<>(Set.of(myKeycloakId)));
     metadataCollection.setStatus(Status.NEW);
 
     repository.save(metadataCollection);
 
-    addToTeam(metadataId, myKeycloakId);
-
     return metadataId;
   }
 
+  /** The responsible role of metadata collections created or cloned by a user. */
+  static Role getCreatorRole(Collection<? extends GrantedAuthority> authorities) {
+    List<String> roleNames = authorities.stream().map(GrantedAuthority::getAuthority).toList();
+    if (roleNames.contains("ROLE_MDEEDITOR")) {
+      return Role.MdeEditor;
+    } else if (roleNames.contains("ROLE_MDEDATAOWNER")) {
+      return Role.MdeDataOwner;
+    }
+    return null;
+  }
+
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public String clone(String title, String cloneMetadataId) throws IOException {
+  @Transactional
+  public String clone(String title, String cloneMetadataId) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     String myKeycloakId =
         ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
     Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
 
     String metadataId = UUID.randomUUID().toString();
+    // the clone is inserted natively, a duplicate would only be rejected by the unique index
+    checkTitle(metadataId, title);
 
-    MetadataCollection metadataCollection = new MetadataCollection(metadataId);
+    // User and role assignment. Set responsibleRole, ownerId, assignedUserId,
+    // teamMemberIds.
+    Role roleToSet = getCreatorRole(authorities);
 
-    MetadataCollection originalMetadataCollection =
+    // the documents are copied within the database, without the keys reset for a new year
+    BigInteger id =
         repository
-            .findByMetadataId(cloneMetadataId)
+            .insertClone(
+                cloneMetadataId, metadataId, title, CLONE_RESET_KEYS, myKeycloakId, roleToSet)
             .orElseThrow(
                 () ->
                     new NoSuchElementException(
                         "MetadataCollection not found for metadataId: " + cloneMetadataId));
-
-    metadataCollection.setClonedFromId(cloneMetadataId);
-
-    JsonIsoMetadata clonedIsoData =
-        objectMapper.readValue(
-            objectMapper.writeValueAsString(originalMetadataCollection.getIsoMetadata()),
-            new TypeReference<JsonIsoMetadata>() {});
-    clonedIsoData.setTitle(title);
-
-    JsonClientMetadata clonedClientData =
-        objectMapper.readValue(
-            objectMapper.writeValueAsString(originalMetadataCollection.getClientMetadata()),
-            new TypeReference<JsonClientMetadata>() {});
-
-    JsonTechnicalMetadata clonedTechnicalData =
-        objectMapper.readValue(
-            objectMapper.writeValueAsString(originalMetadataCollection.getTechnicalMetadata()),
-            new TypeReference<JsonTechnicalMetadata>() {});
-    clonedIsoData.setIdentifier(metadataId);
-
-    // remove old values according to metadatenprofil-berlin.xlsx column "neuer
-    // Jahresstand".
-    // all checked properties are set to null / removed
-    clonedIsoData.setFileIdentifier(null);
-    clonedIsoData.setDescription(null);
-    clonedIsoData.setInspireTheme(null);
-    clonedIsoData.setInspireAnnexVersion(null);
-    clonedIsoData.setCreated(null);
-    clonedIsoData.setPublished(null);
-    clonedIsoData.setModified(null);
-    clonedIsoData.setValidFrom(null);
-    clonedIsoData.setValidTo(null);
-    clonedIsoData.setScale(null);
-    clonedIsoData.setResolutions(null);
-    clonedIsoData.setPreview(null);
-    clonedIsoData.setTechnicalDescription(null);
-    clonedIsoData.setContentDescription(null);
-    clonedIsoData.setContentDescriptions(null);
-    clonedIsoData.setLineage(null);
-    clonedIsoData.setValid(false);
-    clonedIsoData.setServices(null);
-    clonedClientData.setRelatedTopics(null);
-    clonedClientData.setComments(null);
-    clonedTechnicalData.setDeliveredCrs(null);
-
-    // default values
-    metadataCollection.getIsoMetadata().setMetadataProfile(MetadataProfile.ISO);
-
-    metadataCollection.setIsoMetadata(clonedIsoData);
-    metadataCollection.setClientMetadata(clonedClientData);
-    metadataCollection.setTechnicalMetadata(clonedTechnicalData);
-
-    // User and role assignment. Set responsibleRole, ownerId, assignedUserId,
-    // teamMemberIds.
-    Role roleToSet = null;
-    List<String> roleNames = authorities.stream().map(GrantedAuthority::getAuthority).toList();
-    if (roleNames.contains("ROLE_MDEEDITOR")) {
-      roleToSet = Role.MdeEditor;
-    } else if (roleNames.contains("ROLE_MDEDATAOWNER")) {
-      roleToSet = Role.MdeDataOwner;
-    }
-    if (roleToSet != null) {
-      metadataCollection.setResponsibleRole(roleToSet);
-    }
-    metadataCollection.setAssignedUserId(myKeycloakId);
-    metadataCollection.setOwnerId(myKeycloakId);
-    metadataCollection.setStatus(Status.NEW);
-
-    repository.save(metadataCollection);
-
-    addToTeam(metadataId, myKeycloakId);
+    searchService.index(id);
 
     return metadataId;
   }
@@ -228,259 +374,370 @@ public class MetadataCollectionService
       return;
     }
     for (var service : data.getServices()) {
-      if (service.getLegendImage() != null && service.getLegendImage().getUrl() != null) {
-        try {
-          URI uri = new URI(replaceValues(service.getLegendImage().getUrl()));
-
-          // Single connection for both content-type and image data
-          var connection = uri.toURL().openConnection();
-          connection.setRequestProperty("User-Agent", "Mozilla/5.0 (compatible; MDE-Backend)");
-          String contentType = connection.getContentType();
-
-          var iis = ImageIO.createImageInputStream(connection.getInputStream());
-          var readers = ImageIO.getImageReaders(iis);
-          if (readers.hasNext()) {
-            var reader = readers.next();
-
-            reader.setInput(iis);
-            var img = reader.read(0);
-
-            service.getLegendImage().setWidth(img.getWidth());
-            service.getLegendImage().setHeight(img.getHeight());
+      updateLegendImage(service);
+    }
+  }
 
-            // Use content-type as format instead of reader format
-            if (contentType != null) {
-              service.getLegendImage().setFormat(contentType.toLowerCase());
-            }
+  /**
+   * Automatically updates the legend image data (width, height, format) of a single service.
+   *
+   * @param service the service to update
+   */
+  private void updateLegendImage(de.terrestris.mde.mde_backend.model.json.Service service) {
+    if (service.getLegendImage() != null && service.getLegendImage().getUrl() != null) {
+      try {
+        URI uri = new URI(replaceValues(service.getLegendImage().getUrl()));
+
+        // Single connection for both content-type and image data
+        var connection = uri.toURL().openConnection();
+        connection.setRequestProperty("User-Agent", "Mozilla/5.0 (compatible; MDE-Backend)");
+        String contentType = connection.getContentType();
+
+        var iis = ImageIO.createImageInputStream(connection.getInputStream());
+        var readers = ImageIO.getImageReaders(iis);
+        if (readers.hasNext()) {
+          var reader = readers.next();
+
+          reader.setInput(iis);
+          var img = reader.read(0);
+
+          service.getLegendImage().setWidth(img.getWidth());
+          service.getLegendImage().setHeight(img.getHeight());
+
+          // Use content-type as format instead of reader format
+          if (contentType != null) {
+            service.getLegendImage().setFormat(contentType.toLowerCase());
           }
-        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
-          log.warn(
-              "Unable to determine size or content-type of legend for URL {}: {}",
-              service.getLegendImage().getUrl(),
-              e.getMessage());
-          log.trace("Stack trace:", e);
         }
+      } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+        log.warn(
+            "Unable to determine size or content-type of legend for URL {}: {}",
+            service.getLegendImage().getUrl(),
+            e.getMessage());
+        log.trace("Stack trace:", e);
       }
     }
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public MetadataCollection updateIsoJsonValue(String metadataId, String key, JsonNode value)
+  @Transactional
+  public MetadataCollection updateIsoJsonValue(
+      String metadataId, String key, JsonNode value, Long version)
       throws IOException, IllegalArgumentException {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+    JsonIsoMetadata updatedData = bindJsonValue(JsonIsoMetadata.class, key, value);
 
-    JsonIsoMetadata data = metadataCollection.getIsoMetadata();
-    String jsonString = objectMapper.writeValueAsString(data);
+    checkIsoJsonValues(metadataId, updatedData, Set.of(key));
 
-    ObjectNode jsonNode = (ObjectNode) objectMapper.readTree(jsonString);
-    jsonNode.replace(key, value);
-
-    JsonIsoMetadata updatedData = objectMapper.treeToValue(jsonNode, JsonIsoMetadata.class);
+    return updateJsonValue(metadataId, version, MetadataType.ISO, key, updatedData);
+  }
 
+  /**
+   * Checks the given keys of an ISO document for duplicate titles and services and updates the
+   * legends of the services.
+   */
+  private void checkIsoJsonValues(
+      String metadataId, JsonIsoMetadata updatedData, Collection<String> keys) {
     // check for duplicate title
-    if (key.equals("title")) {
-      Optional<MetadataCollection> existingMc =
-          repository.findByIsoMetadataTitle(updatedData.getTitle());
-      if (existingMc.isPresent() && !existingMc.get().getMetadataId().equals(metadataId)) {
-        throw new DuplicateTitleException(updatedData.getTitle());
-      }
-      // check for duplicate service identification
-    } else if (key.equals("services") && updatedData.getServices() != null) {
-      for (var service : updatedData.getServices()) {
-        if (service.getServiceType() != null && service.getWorkspace() != null) {
-          Optional<MetadataCollection> existingMc =
-              repository.findByServiceTypeAndWorkspace(
-                  service.getServiceType().name(), service.getWorkspace());
-          if (existingMc.isPresent() && !existingMc.get().getMetadataId().equals(metadataId)) {
-            throw new DuplicateServiceIdentificationException(service.getServiceIdentification());
-          }
-        }
-      }
-      for (var service : updatedData.getServices()) {
-        if (service.getServiceType() != null && service.getWorkspace() != null) {
-          updatedData.getServices().stream()
-              .filter(
-                  s ->
-                      s != service
-                          && s.getServiceType() != null
-                          && s.getWorkspace() != null
-                          && s.getServiceType().equals(service.getServiceType())
-                          && s.getWorkspace().equals(service.getWorkspace()))
-              .findAny()
-              .ifPresent(
-                  s -> {
-                    throw new DuplicateServiceIdentificationException(
-                        service.getServiceIdentification());
-                  });
-        }
-      }
+    if (keys.contains("title")) {
+      checkTitle(metadataId, updatedData.getTitle());
+    }
+    // check for duplicate service identification
+    if (keys.contains("services") && updatedData.getServices() != null) {
+      checkServices(metadataId, updatedData.getServices(), List.of());
     }
 
     updateLegendData(updatedData);
-    metadataCollection.setIsoMetadata(updatedData);
-    if (metadataCollection.getStatus().equals(Status.PUBLISHED)) {
-      metadataCollection.setStatus(Status.IN_EDIT);
-    }
-    metadataCollection.setApproved(false);
+  }
 
-    return repository.save(metadataCollection);
+  @PreAuthorize("isAuthenticated()")
+  @Transactional
+  public MetadataCollection updateClientJsonValue(
+      String metadataId, String key, JsonNode value, Long version)
+      throws IOException, JsonPatchException {
+    JsonClientMetadata updatedData = bindJsonValue(JsonClientMetadata.class, key, value);
+
+    return updateJsonValue(metadataId, version, MetadataType.CLIENT, key, updatedData);
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public MetadataCollection updateClientJsonValue(String metadataId, String key, JsonNode value)
+  @Transactional
+  public MetadataCollection updateTechnicalJsonValue(
+      String metadataId, String key, JsonNode value, Long version)
       throws IOException, JsonPatchException {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+    JsonTechnicalMetadata updatedData = bindJsonValue(JsonTechnicalMetadata.class, key, value);
 
-    JsonClientMetadata data = metadataCollection.getClientMetadata();
-    String jsonString = objectMapper.writeValueAsString(data);
+    return updateJsonValue(metadataId, version, MetadataType.TECHNICAL, key, updatedData);
+  }
+
+  /**
+   * Replaces the values of several top level keys of the JSON documents of a metadata collection at
+   * once. All changes are validated and checked like single key updates and written in one
+   * transaction with a single UPDATE. Later changes of the same key win.
+   *
+   * @param metadataId the metadata collection to update
+   * @param changes the keys and values to replace
+   * @param version the expected current version, {@code null} to update any version
+   * @return the updated metadata collection
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional
+  public MetadataCollection updateJsonValues(
+      String metadataId, List<MetadataJsonPatch> changes, Long version) {
+    Map<MetadataType, ObjectNode> values = new EnumMap<>(MetadataType.class);
+    for (MetadataJsonPatch change : changes) {
+      if (change.getType() == null || change.getKey() == null) {
+        throw new IllegalArgumentException("Each change needs a type and a key");
+      }
+      values
+          .computeIfAbsent(change.getType(), type -> objectMapper.createObjectNode())
+          .set(change.getKey(), change.getValue());
+    }
 
-    ObjectNode jsonNode = (ObjectNode) objectMapper.readTree(jsonString);
-    jsonNode.replace(key, value);
+    List<JsonPathUpdate> updates = new ArrayList<>();
+    for (var entry : values.entrySet()) {
+      MetadataType type = entry.getKey();
+      ObjectNode node = entry.getValue();
+      Object updatedData =
+          switch (type) {
+            case ISO -> {
+              JsonIsoMetadata isoData = objectMapper.treeToValue(node, JsonIsoMetadata.class);
+              checkIsoJsonValues(metadataId, isoData, node.propertyNames());
+              yield isoData;
+            }
+            case CLIENT -> objectMapper.treeToValue(node, JsonClientMetadata.class);
+            case TECHNICAL -> objectMapper.treeToValue(node, JsonTechnicalMetadata.class);
+          };
+
+      JsonNode updated = objectMapper.valueToTree(updatedData);
+      for (String key : node.propertyNames()) {
+        JsonNode value = updated.get(key);
+        updates.add(
+            new JsonPathUpdate(
+                type, List.of(key), value == null ? null : objectMapper.writeValueAsString(value)));
+      }
+    }
 
-    JsonClientMetadata updatedData = objectMapper.treeToValue(jsonNode, JsonClientMetadata.class);
-    metadataCollection.setClientMetadata(updatedData);
-    if (metadataCollection.getStatus().equals(Status.PUBLISHED)) {
-      metadataCollection.setStatus(Status.IN_EDIT);
+    if (updates.isEmpty()) {
+      return getForUpdate(metadataId, version);
     }
-    metadataCollection.setApproved(false);
 
-    return repository.save(metadataCollection);
+    return storeJsonValues(metadataId, version, updates);
   }
 
+  /**
+   * Applies a RFC 6902 JSON patch to the JSON documents of a metadata collection, see {@link
+   * JsonPatchSupport} for the pointers. Only the top level keys touched by the patch are loaded,
+   * validated and checked, and only the values that actually changed are written.
+   *
+   * @param metadataId the metadata collection to patch
+   * @param patch the list of patch operations
+   * @param version the expected current version, {@code null} to patch any version
+   * @return the patched metadata collection
+   */
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public MetadataCollection updateTechnicalJsonValue(String metadataId, String key, JsonNode value)
+  @Transactional
+  public MetadataCollection patch(String metadataId, JsonNode patch, Long version)
       throws IOException, JsonPatchException {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
-
-    JsonTechnicalMetadata data = metadataCollection.getTechnicalMetadata();
-    String jsonString = objectMapper.writeValueAsString(data);
-
-    ObjectNode jsonNode = (ObjectNode) objectMapper.readTree(jsonString);
-    jsonNode.replace(key, value);
+    List<JsonPathUpdate> updates = new ArrayList<>();
+    for (var entry : JsonPatchSupport.split(patch).entrySet()) {
+      MetadataType type = entry.getKey();
+      Set<String> keys = JsonPatchSupport.keys(entry.getValue());
+      JsonNode previous =
+          objectMapper.readTree(
+              repository
+                  .findJsonValues(metadataId, type, keys)
+                  .orElseThrow(
+                      () ->
+                          new NoSuchElementException(
+                              "MetadataCollection not found for metadataId: " + metadataId)));
+      JsonNode patched = JsonPatchSupport.apply(entry.getValue(), previous, objectMapper);
+
+      Object updatedData =
+          switch (type) {
+            case ISO -> bindIsoJsonValues(metadataId, previous, patched);
+            case CLIENT -> objectMapper.treeToValue(patched, JsonClientMetadata.class);
+            case TECHNICAL -> objectMapper.treeToValue(patched, JsonTechnicalMetadata.class);
+          };
+
+      // unknown keys are dropped and empty values removed as for single key updates
+      JsonNode updated = objectMapper.valueToTree(updatedData);
+      for (String key : keys) {
+        JsonPatchSupport.diff(type, List.of(key), previous.get(key), updated.get(key), updates);
+      }
+    }
 
-    JsonTechnicalMetadata updatedData =
-        objectMapper.treeToValue(jsonNode, JsonTechnicalMetadata.class);
-    metadataCollection.setTechnicalMetadata(updatedData);
-    if (metadataCollection.getStatus().equals(Status.PUBLISHED)) {
-      metadataCollection.setStatus(Status.IN_EDIT);
+    if (updates.isEmpty()) {
+      return getForUpdate(metadataId, version);
     }
-    metadataCollection.setApproved(false);
 
-    return repository.save(metadataCollection);
+    return storeJsonValues(metadataId, version, updates);
   }
 
-  @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void assignUser(String metadataId, String userId) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
-
-    if (metadataCollection.getAssignedUserId() != null) {
-      Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-      Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
-      List<String> roleNames = authorities.stream().map(GrantedAuthority::getAuthority).toList();
+  /**
+   * Binds the patched keys of an ISO document. A changed title and the changed services are checked
+   * for duplicates and the legends of the changed services are updated.
+   */
+  private JsonIsoMetadata bindIsoJsonValues(
+      String metadataId, JsonNode previous, JsonNode patched) {
+    JsonIsoMetadata previousData = objectMapper.treeToValue(previous, JsonIsoMetadata.class);
+    JsonIsoMetadata updatedData = objectMapper.treeToValue(patched, JsonIsoMetadata.class);
 
-      // the metadata is currently assigned to me so i can reassign it to someone else
-      boolean isSelfAssigned =
-          metadataCollection.getAssignedUserId().equals(authentication.getName());
+    if (patched.has("title") && !Objects.equals(updatedData.getTitle(), previousData.getTitle())) {
+      checkTitle(metadataId, updatedData.getTitle());
+    }
 
-      if (!isSelfAssigned && !roleNames.contains("ROLE_MDEADMINISTRATOR")) {
-        throw new IllegalStateException("MetadataCollection is already assigned to a user.");
+    var services = updatedData.getServices();
+    if (services != null) {
+      var previousServices =
+          previousData.getServices() == null
+              ? List.<de.terrestris.mde.mde_backend.model.json.Service>of()
+              : previousData.getServices();
+      checkServices(metadataId, services, previousServices);
+      for (int i = 0; i < services.size(); i++) {
+        var service = services.get(i);
+        var previousService = findPreviousService(previousServices, i, service);
+        if (previousService == null
+            || !Objects.equals(previousService.getLegendImage(), service.getLegendImage())) {
+          updateLegendImage(service);
+        }
       }
     }
 
-    metadataCollection.setAssignedUserId(userId);
-
-    // everyone who is assigned to the metadata collection should be added to the
-    // team
-    addToTeam(metadataId, userId);
-
-    // set the responsible role of the assigned user
-    List<String> possibleRolesNames = Arrays.stream(Role.values()).map(Enum::name).toList();
-    List<RoleRepresentation> keycloakUserRoles = keycloakService.getRealmRoles(userId);
-    List<String> keycloakUserRoleNames =
-        keycloakUserRoles.stream().map(RoleRepresentation::getName).toList();
+    return updatedData;
+  }
 
-    for (String keycloakUserRoleName : keycloakUserRoleNames) {
-      if (possibleRolesNames.contains(keycloakUserRoleName)) {
-        metadataCollection.setResponsibleRole(Role.valueOf(keycloakUserRoleName));
-        break;
+  /**
+   * Checks the services for duplicate service types and workspaces, within the list and in other
+   * metadata collections. Services whose type and workspace did not change compared to the previous
+   * services are not checked against the database again.
+   */
+  private void checkServices(
+      String metadataId,
+      List<de.terrestris.mde.mde_backend.model.json.Service> services,
+      List<de.terrestris.mde.mde_backend.model.json.Service> previousServices) {
+    List<de.terrestris.mde.mde_backend.model.json.Service> changedServices = new ArrayList<>();
+    for (int i = 0; i < services.size(); i++) {
+      var service = services.get(i);
+      if (service.getServiceType() != null && service.getWorkspace() != null) {
+        var previousService = findPreviousService(previousServices, i, service);
+        boolean unchanged =
+            previousService != null
+                && service.getServiceType() == previousService.getServiceType()
+                && service.getWorkspace().equals(previousService.getWorkspace());
+        if (!unchanged) {
+          changedServices.add(service);
+        }
       }
     }
-    if (metadataCollection.getStatus().equals(Status.PUBLISHED)) {
-      metadataCollection.setStatus(Status.IN_EDIT);
-      metadataCollection.setApproved(false);
+    // serializes concurrent checks of the same services, in a fixed order to avoid deadlocks
+    changedServices.stream()
+        .map(service -> "service:" + service.getServiceType() + "/" + service.getWorkspace())
+        .sorted()
+        .distinct()
+        .forEach(repository::lockValue);
+    for (var service : changedServices) {
+      if (repository.existsServiceInOtherMetadata(
+          service.getServiceType().name(), service.getWorkspace(), metadataId)) {
+        throw new DuplicateServiceIdentificationException(service.getServiceIdentification());
+      }
+    }
+    for (var service : services) {
+      if (service.getServiceType() != null && service.getWorkspace() != null) {
+        services.stream()
+            .filter(
+                s ->
+                    s != service
+                        && s.getServiceType() != null
+                        && s.getWorkspace() != null
+                        && s.getServiceType().equals(service.getServiceType())
+                        && s.getWorkspace().equals(service.getWorkspace()))
+            .findAny()
+            .ifPresent(
+                s -> {
+                  throw new DuplicateServiceIdentificationException(
+                      service.getServiceIdentification());
+                });
+      }
     }
+  }
 
-    repository.save(metadataCollection);
+  /** Checks the title for duplicates in other metadata collections. */
+  private void checkTitle(String metadataId, String title) {
+    // serializes concurrent checks of the same title until the end of the transaction
+    repository.lockValue("title:" + title);
+    if (repository.existsTitleInOtherMetadata(title, metadataId)) {
+      throw new DuplicateTitleException(title);
+    }
   }
 
-  @PreAuthorize(
-      "hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR') or hasRole('ROLE_MDEQUALITYASSURANCE')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void unassignUser(String metadataId) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+  /** Finds the previous version of a service by its id, or by its position if it has none. */
+  private static de.terrestris.mde.mde_backend.model.json.Service findPreviousService(
+      List<de.terrestris.mde.mde_backend.model.json.Service> previousServices,
+      int index,
+      de.terrestris.mde.mde_backend.model.json.Service service) {
+    if (service.getId() == null) {
+      return index < previousServices.size() ? previousServices.get(index) : null;
+    }
+    return previousServices.stream()
+        .filter(previousService -> service.getId().equals(previousService.getId()))
+        .findFirst()
+        .orElse(null);
+  }
 
-    metadataCollection.setAssignedUserId(null);
-    repository.save(metadataCollection);
+  /**
+   * Binds a single key of a JSON document to its type, validating the value without loading the
+   * stored document.
+   */
+  private <T> T bindJsonValue(Class<T> type, String key, JsonNode value) {
+    ObjectNode jsonNode = objectMapper.createObjectNode();
+    jsonNode.set(key, value);
+
+    return objectMapper.treeToValue(jsonNode, type);
   }
 
-  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void addToTeam(String metadataId, String userId) {
+  /**
+   * Stores the bound value of the key with a single UPDATE. The value is written as serialized from
+   * the bound document, so unknown keys are dropped and empty values removed as before.
+   */
+  private MetadataCollection updateJsonValue(
+      String metadataId, Long version, MetadataType type, String key, Object updatedData) {
+    JsonNode value = objectMapper.valueToTree(updatedData).get(key);
+
+    return storeJsonValues(
+        metadataId,
+        version,
+        List.of(
+            new JsonPathUpdate(
+                type,
+                List.of(key),
+                value == null ? null : objectMapper.writeValueAsString(value))));
+  }
+
+  private MetadataCollection storeJsonValues(
+      String metadataId, Long version, List<JsonPathUpdate> updates) {
     MetadataCollection metadataCollection =
         repository
-            .findByMetadataId(metadataId)
+            .updateJsonValues(metadataId, version, updates)
             .orElseThrow(
                 () ->
                     new NoSuchElementException(
                         "MetadataCollection not found for metadataId: " + metadataId));
+    // native updates are not noticed by the automatic indexing
+    searchService.index(metadataCollection);
 
-    Set<String> teamMemberIds = metadataCollection.getTeamMemberIds();
-    if (teamMemberIds == null) {
-      teamMemberIds = new HashSet<>();
-      metadataCollection.setTeamMemberIds(teamMemberIds);
-    }
-    teamMemberIds.add(userId);
-
-    repository.save(metadataCollection);
+    return metadataCollection;
   }
 
-  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void removeFromTeam(String metadataId, String userId) {
+  /**
+   * Loads a metadata collection to modify it. Concurrent modifications are detected by the version
+   * when the changes are flushed.
+   *
+   * @param metadataId the metadata collection to load
+   * @param version the expected current version, {@code null} to accept any version
+   * @throws OptimisticLockingFailureException if the metadata collection does not have the expected
+   *     version
+   */
+  private MetadataCollection getForUpdate(String metadataId, Long version) {
     MetadataCollection metadataCollection =
         repository
             .findByMetadataId(metadataId)
@@ -488,75 +745,202 @@ public class MetadataCollectionService
                 () ->
                     new NoSuchElementException(
                         "MetadataCollection not found for metadataId: " + metadataId));
+    if (version != null && !version.equals(metadataCollection.getVersion())) {
+      throw new OptimisticLockingFailureException(
+          "MetadataCollection " + metadataId + " does not have the expected version " + version);
+    }
+    return metadataCollection;
+  }
 
-    Set<String> teamMemberIds = metadataCollection.getTeamMemberIds();
+  @PreAuthorize("isAuthenticated()")
+  @Transactional
+  public long assignUser(String metadataId, String userId, Long version) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+    List<String> roleNames = authorities.stream().map(GrantedAuthority::getAuthority).toList();
 
-    if (teamMemberIds == null) {
-      return;
-    }
+    // set the responsible role of the assigned user
+    Role responsibleRole = getResponsibleRole(userId);
+
+    // everyone who is assigned to the metadata collection is added to the team. A metadata
+    // collection currently assigned to me can be reassigned to someone else
+    return workflowService.indexUpdated(
+        repository.assignUser(
+            metadataId,
+            version,
+            userId,
+            responsibleRole,
+            authentication.getName(),
+            roleNames.contains("ROLE_MDEADMINISTRATOR")),
+        metadataId,
+        version,
+        "MetadataCollection is already assigned to a user.");
+  }
 
-    metadataCollection.getTeamMemberIds().remove(userId);
-    repository.save(metadataCollection);
+  /** The first realm role of the given user in Keycloak that is a {@link Role}, if any. */
+  private Role getResponsibleRole(String userId) {
+    List<String> possibleRolesNames = Arrays.stream(Role.values()).map(Enum::name).toList();
+    List<RoleRepresentation> keycloakUserRoles = keycloakService.getRealmRoles(userId);
+    List<String> keycloakUserRoleNames =
+        keycloakUserRoles.stream().map(RoleRepresentation::getName).toList();
+
+    for (String keycloakUserRoleName : keycloakUserRoleNames) {
+      if (possibleRolesNames.contains(keycloakUserRoleName)) {
+        return Role.valueOf(keycloakUserRoleName);
+      }
+    }
+    return null;
   }
 
-  @PreAuthorize(
-      "hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR') or hasRole('ROLE_MDEQUALITYASSURANCE') or hasRole('ROLE_MDEDATAOWNER')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void assignRole(String metadataId, String role) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+  /**
+   * Applies a workflow operation to several metadata collections at once. All of them are updated
+   * by a single statement in one transaction and the Keycloak roles of the user to assign are only
+   * resolved once. Unlike the single operations, the versions are not checked.
+   *
+   * @param request the operation and the metadata collections to apply it to
+   * @return the result for each selected metadata collection
+   * @throws AccessDeniedException if the current user may not execute the operation
+   * @throws IllegalArgumentException if the request is incomplete or selects more than {@link
+   *     #BULK_LIMIT} metadata collections
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional
+  public List<BulkWorkflowResult> bulkUpdate(BulkWorkflowRequest request) {
+    WorkflowOperation operation = request.getOperation();
+    if (operation == null) {
+      throw new IllegalArgumentException("A workflow operation is required");
+    }
 
-    String assignedUserId = metadataCollection.getAssignedUserId();
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    List<String> roleNames =
+        authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    // the same roles as required by the single operations
+    if (!operation.getAuthorities().isEmpty()
+        && roleNames.stream().noneMatch(operation.getAuthorities()::contains)) {
+      throw new AccessDeniedException("Not allowed to execute " + operation);
+    }
 
-    if (assignedUserId != null) {
-      this.unassignUser(metadataId);
+    String userId = request.getUserId();
+    if (EnumSet.of(
+                WorkflowOperation.ASSIGN_USER,
+                WorkflowOperation.ADD_TO_TEAM,
+                WorkflowOperation.REMOVE_FROM_TEAM)
+            .contains(operation)
+        && (userId == null || userId.isBlank())) {
+      throw new IllegalArgumentException("A userId is required for " + operation);
     }
-    if (metadataCollection.getStatus().equals(Status.PUBLISHED)) {
-      metadataCollection.setStatus(Status.IN_EDIT);
-      metadataCollection.setApproved(false);
+    Role role = null;
+    if (operation == WorkflowOperation.ASSIGN_ROLE) {
+      if (request.getRole() == null) {
+        throw new IllegalArgumentException("A role is required for " + operation);
+      }
+      role = Role.valueOf(request.getRole());
+    } else if (operation == WorkflowOperation.ASSIGN_USER) {
+      role = getResponsibleRole(userId);
     }
 
-    metadataCollection.setResponsibleRole(Role.valueOf(role));
-    repository.save(metadataCollection);
+    List<String> metadataIds;
+    if (request.getMetadataIds() != null) {
+      metadataIds = request.getMetadataIds().stream().distinct().toList();
+    } else if (request.getQuery() != null) {
+      String myKeycloakId =
+          ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+      metadataIds =
+          repository.findMetadataIds(
+              MetadataCollectionSpecification.searchMetadata(request.getQuery(), myKeycloakId),
+              BULK_LIMIT + 1);
+    } else {
+      throw new IllegalArgumentException("Either metadataIds or a query is required");
+    }
+    if (metadataIds.size() > BULK_LIMIT) {
+      throw new IllegalArgumentException(
+          "At most " + BULK_LIMIT + " metadata collections can be updated at once");
+    }
+
+    Map<String, BigInteger> updated =
+        repository.updateWorkflows(
+            metadataIds,
+            operation,
+            userId,
+            role,
+            authentication.getName(),
+            roleNames.contains("ROLE_MDEADMINISTRATOR"));
+    searchService.index(updated.values());
+
+    // only a user assignment has a further condition, all other failures are missing metadata
+    List<String> missing =
+        metadataIds.stream().filter(metadataId -> !updated.containsKey(metadataId)).toList();
+    Set<String> existing =
+        missing.isEmpty() || operation != WorkflowOperation.ASSIGN_USER
+            ? Set.of()
+            : new HashSet<>(
+                repository.findMetadataIds(
+                    (root, query, cb) -> root.get("metadataId").in(missing), missing.size()));
+
+    return metadataIds.stream()
+        .map(
+            metadataId ->
+                new BulkWorkflowResult(
+                    metadataId,
+                    updated.containsKey(metadataId)
+                        ? BulkWorkflowStatus.UPDATED
+                        : existing.contains(metadataId)
+                            ? BulkWorkflowStatus.REJECTED
+                            : BulkWorkflowStatus.NOT_FOUND))
+        .toList();
   }
 
   @PreAuthorize(
       "hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR') or hasRole('ROLE_MDEQUALITYASSURANCE')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void unassignRole(String metadataId) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+  @Transactional
+  public long unassignUser(String metadataId, Long version) {
+    return workflowService.indexUpdated(
+        repository.unassignUser(metadataId, version), metadataId, version, null);
+  }
 
-    metadataCollection.setResponsibleRole(null);
-    repository.save(metadataCollection);
+  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
+  @Transactional
+  public long addToTeam(String metadataId, String userId, Long version) {
+    return workflowService.indexUpdated(
+        repository.addTeamMember(metadataId, version, userId), metadataId, version, null);
+  }
+
+  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
+  @Transactional
+  public long removeFromTeam(String metadataId, String userId, Long version) {
+    return workflowService.indexUpdated(
+        repository.removeTeamMember(metadataId, version, userId), metadataId, version, null);
+  }
+
+  @PreAuthorize(
+      "hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR') or hasRole('ROLE_MDEQUALITYASSURANCE') or hasRole('ROLE_MDEDATAOWNER')")
+  @Transactional
+  public long assignRole(String metadataId, String role, Long version) {
+    return workflowService.indexUpdated(
+        repository.updateResponsibleRole(metadataId, version, Role.valueOf(role)),
+        metadataId,
+        version,
+        null);
+  }
+
+  @PreAuthorize(
+      "hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR') or hasRole('ROLE_MDEQUALITYASSURANCE')")
+  @Transactional
+  public long unassignRole(String metadataId, Long version) {
+    return workflowService.indexUpdated(
+        repository.updateResponsibleRole(metadataId, version, null), metadataId, version, null);
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public Comment addComment(String metadataId, String text) {
+  @Transactional
+  public Comment addComment(String metadataId, String text, Long version) {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
     if (!authentication.isAuthenticated()) {
       throw new IllegalStateException("User must be authenticated to add a comment");
     }
 
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+    MetadataCollection metadataCollection = getForUpdate(metadataId, version);
 
     JsonClientMetadata data = metadataCollection.getClientMetadata();
 
@@ -578,15 +962,9 @@ public class MetadataCollectionService
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void deleteComment(String metadataId, UUID commentId) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+  @Transactional
+  public void deleteComment(String metadataId, UUID commentId, Long version) {
+    MetadataCollection metadataCollection = getForUpdate(metadataId, version);
 
     JsonClientMetadata data = metadataCollection.getClientMetadata();
 
@@ -651,30 +1029,17 @@ public class MetadataCollectionService
   }
 
   @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEQUALITYASSURANCE')")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public void setApprovalState(String metadataId, Boolean approved) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
-
-    metadataCollection.setApproved(approved);
-    repository.save(metadataCollection);
+  @Transactional
+  public long setApprovalState(String metadataId, Boolean approved, Long version) {
+    return workflowService.indexUpdated(
+        repository.updateApproved(metadataId, version, approved), metadataId, version, null);
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
-  public String updateLayers(String metadataId, String serviceIdentification, List<Layer> layers) {
-    MetadataCollection metadataCollection =
-        repository
-            .findByMetadataId(metadataId)
-            .orElseThrow(
-                () ->
-                    new NoSuchElementException(
-                        "MetadataCollection not found for metadataId: " + metadataId));
+  @Transactional
+  public String updateLayers(
+      String metadataId, String serviceIdentification, List<Layer> layers, Long version) {
+    MetadataCollection metadataCollection = getForUpdate(metadataId, version);
 
     JsonClientMetadata clientMetadata = metadataCollection.getClientMetadata();
     Map<String, List<Layer>> layerMap = clientMetadata.getLayers();
@@ -696,7 +1061,7 @@ public class MetadataCollectionService
   }
 
   @PreAuthorize("isAuthenticated()")
-  @Transactional(isolation = Isolation.SERIALIZABLE)
+  @Transactional
   public void prepareServiceDeletion(String metadataId, String fileIdentifier) {
     var serviceDeletion = new ServiceDeletion(null, metadataId, fileIdentifier);
     serviceDeletionRepository.save(serviceDeletion);
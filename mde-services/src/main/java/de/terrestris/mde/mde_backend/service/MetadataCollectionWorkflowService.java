@@ -0,0 +1,77 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
+import de.terrestris.mde.mde_backend.model.dto.MetadataVersion;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Completes the single statement updates of the workflow columns of metadata collections by the
+ * {@link MetadataCollectionRepository}, which neither load nor write the JSON documents. The
+ * repository evicts the updated metadata collections from the second-level cache, the search index
+ * is updated here.
+ */
+@Service
+public class MetadataCollectionWorkflowService {
+
+  @Autowired private MetadataCollectionRepository repository;
+
+  @Autowired private SearchService searchService;
+
+  /**
+   * Completes a single statement update of workflow columns by the {@link
+   * MetadataCollectionRepository}: updates the search document of the metadata collection or, if no
+   * row was updated, determines why.
+   *
+   * @param updated the updated metadata collection, empty if no row was updated
+   * @param metadataId the metadata collection that should have been updated
+   * @param version the expected version passed to the update
+   * @param conditionMessage the message if the update had a further condition that was not met
+   * @return the new version of the metadata collection
+   * @throws NoSuchElementException if the metadata collection does not exist
+   * @throws OptimisticLockingFailureException if the metadata collection does not have the expected
+   *     version
+   * @throws IllegalStateException if the further condition of the update was not met
+   */
+  public long indexUpdated(
+      Optional<MetadataVersion> updated, String metadataId, Long version, String conditionMessage) {
+    if (updated.isPresent()) {
+      searchService.index(updated.get().id());
+      return updated.get().version();
+    }
+    Long currentVersion =
+        repository
+            .findVersionByMetadataId(metadataId)
+            .orElseThrow(
+                () ->
+                    new NoSuchElementException(
+                        "MetadataCollection not found for metadataId: " + metadataId));
+    if (version != null && !version.equals(currentVersion)) {
+      throw new OptimisticLockingFailureException(
+          "MetadataCollection " + metadataId + " does not have the expected version " + version);
+    }
+    throw new IllegalStateException(
+        conditionMessage == null
+            ? "MetadataCollection " + metadataId + " was modified concurrently"
+            : conditionMessage);
+  }
+
+  /**
+   * Removes users from the owner, the assignment and the team of a metadata collection, e.g. users
+   * deleted in Keycloak. Concurrent changes of the other users are kept, so no version is required.
+   *
+   * @param metadataId the metadata collection to update
+   * @param userIds the users to remove
+   * @return the new version of the metadata collection
+   * @throws NoSuchElementException if the metadata collection does not exist
+   */
+  @Transactional
+  public long removeUsers(String metadataId, Collection<String> userIds) {
+    return indexUpdated(repository.removeUsers(metadataId, null, userIds), metadataId, null, null);
+  }
+}
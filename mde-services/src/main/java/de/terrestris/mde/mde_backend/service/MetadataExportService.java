@@ -0,0 +1,176 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.enumeration.ExportFormat;
+import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.QueryConfig;
+import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Exports the metadata collections matching a query. The rows are read from a database cursor and
+ * written one by one, so the memory usage does not depend on the number of exported collections.
+ */
+@Log4j2
+@Service
+public class MetadataExportService {
+
+  /** The fields exported as CSV if no fields are requested. */
+  public static final List<String> DEFAULT_CSV_FIELDS =
+      List.of(
+          "metadataId",
+          "isoMetadata.title",
+          "status",
+          "approved",
+          "assignedUserId",
+          "responsibleRole",
+          "modified");
+
+  /** A field is a dot separated path into the JSON of a metadata collection. */
+  private static final Pattern FIELD_PATTERN = Pattern.compile("\\w+(\\.\\w+)*");
+
+  /** The number of rows fetched at once, the persistence context is cleared after each batch. */
+  private static final int FETCH_SIZE = 200;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private MetadataCollectionRepository repository;
+
+  @Autowired @Lazy private ObjectMapper objectMapper;
+
+  /**
+   * Checks that the given fields are valid paths, e.g. {@code isoMetadata.extent.minx}.
+   *
+   * @throws IllegalArgumentException if one of the fields is invalid
+   */
+  public static void validateFields(List<String> fields) {
+    if (fields == null) {
+      return;
+    }
+    for (String field : fields) {
+      if (!FIELD_PATTERN.matcher(field).matches()) {
+        throw new IllegalArgumentException("Invalid field: " + field);
+      }
+    }
+  }
+
+  /**
+   * Writes the metadata collections matching the given config to the given stream, in the order of
+   * the query endpoint.
+   *
+   * @param fields the fields to export, dot separated paths into the JSON of the metadata
+   *     collection. If empty, NDJSON contains the complete metadata collections and CSV the {@link
+   *     #DEFAULT_CSV_FIELDS}.
+   * @return the number of exported metadata collections
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public long export(QueryConfig config, ExportFormat format, List<String> fields, OutputStream out)
+      throws IOException {
+    validateFields(fields);
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+
+    List<String> columns = fields;
+    if ((columns == null || columns.isEmpty()) && format == ExportFormat.CSV) {
+      columns = DEFAULT_CSV_FIELDS;
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    if (format == ExportFormat.CSV) {
+      writer.write(toCsvLine(columns.stream()));
+    }
+
+    long count = 0;
+    try (Stream<MetadataCollection> stream =
+        repository.stream(
+            MetadataCollectionSpecification.searchMetadata(config, myKeycloakId), FETCH_SIZE)) {
+      Iterator<MetadataCollection> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        MetadataCollection metadataCollection = iterator.next();
+        writer.write(toRow(metadataCollection, format, columns));
+        if (++count % FETCH_SIZE == 0) {
+          // the collections are not needed anymore, keep the persistence context small
+          entityManager.clear();
+          writer.flush();
+        }
+      }
+    }
+    writer.flush();
+
+    log.debug("Exported {} metadata collections as {}", count, format);
+    return count;
+  }
+
+  private String toRow(
+      MetadataCollection metadataCollection, ExportFormat format, List<String> columns) {
+    if (format == ExportFormat.NDJSON && (columns == null || columns.isEmpty())) {
+      return objectMapper.writeValueAsString(metadataCollection) + "\n";
+    }
+
+    JsonNode node = objectMapper.valueToTree(metadataCollection);
+    if (format == ExportFormat.CSV) {
+      return toCsvLine(columns.stream().map(column -> toText(node.at(toPointer(column)))));
+    }
+
+    ObjectNode row = objectMapper.createObjectNode();
+    for (String column : columns) {
+      JsonNode value = node.at(toPointer(column));
+      row.set(column, value.isMissingNode() ? null : value);
+    }
+    return objectMapper.writeValueAsString(row) + "\n";
+  }
+
+  /** Converts a dot separated field path to a JSON pointer. */
+  static String toPointer(String field) {
+    return "/" + field.replace('.', '/');
+  }
+
+  /** The text of a value, objects and arrays are written as JSON. */
+  private String toText(JsonNode value) {
+    if (value.isMissingNode() || value.isNull()) {
+      return "";
+    }
+    return value.isValueNode() ? value.asString() : objectMapper.writeValueAsString(value);
+  }
+
+  private static String toCsvLine(Stream<String> values) {
+    return values.map(MetadataExportService::toCsv).collect(Collectors.joining(",", "", "\r\n"));
+  }
+
+  /** Quotes a CSV value if needed (RFC 4180). */
+  static String toCsv(String value) {
+    if (value.contains(",")
+        || value.contains("\"")
+        || value.contains("\n")
+        || value.contains("\r")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+}
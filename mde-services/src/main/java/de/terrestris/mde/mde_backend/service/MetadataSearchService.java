@@ -0,0 +1,534 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.enumeration.SpatialRelation;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.Status;
+import de.terrestris.mde.mde_backend.model.dto.MetadataCollectionSummary;
+import de.terrestris.mde.mde_backend.model.dto.MetadataFacets;
+import de.terrestris.mde.mde_backend.model.dto.MetadataSearchHit;
+import de.terrestris.mde.mde_backend.model.dto.MetadataSuggestions;
+import de.terrestris.mde.mde_backend.model.dto.QueryConfig;
+import de.terrestris.mde.mde_backend.model.json.Extent;
+import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.search.engine.search.aggregation.AggregationKey;
+import org.hibernate.search.engine.search.common.BooleanOperator;
+import org.hibernate.search.engine.search.highlighter.dsl.HighlighterEncoder;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateOptionsCollector;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.predicate.dsl.SimpleQueryFlag;
+import org.hibernate.search.engine.search.projection.SearchProjection;
+import org.hibernate.search.engine.search.projection.dsl.ProjectionFinalStep;
+import org.hibernate.search.engine.search.projection.dsl.SearchProjectionFactory;
+import org.hibernate.search.engine.search.query.SearchQuery;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.common.EntityReference;
+import org.hibernate.search.mapper.orm.scope.SearchScope;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Serves metadata collection queries from the Hibernate Search index. See {@link SearchService} for
+ * the maintenance of the index itself.
+ */
+@Log4j2
+@Service
+public class MetadataSearchService {
+
+  /** The title normalized by {@link MdeLuceneAnalysisConfigurer#LOWERCASE_NORMALIZER}. */
+  static final String TITLE_FIELD = "isoMetadata.title_lower";
+
+  /** The title as stored in the document. */
+  static final String TITLE_PROJECTION_FIELD = "isoMetadata.title_sort";
+
+  static final String TEAM_MEMBER_FIELD = "team_member_sort";
+
+  static final String EXTENT_FIELD = "isoMetadata.extent";
+
+  static final String TITLE_SUGGEST_FIELD = "isoMetadata.title_suggest";
+
+  /** The keywords indexed as nested documents, one per keyword. */
+  static final String KEYWORD_SUGGESTIONS_FIELD = "isoMetadata.keyword_suggestions";
+
+  static final String KEYWORD_SUGGEST_FIELD = KEYWORD_SUGGESTIONS_FIELD + ".keyword_suggest";
+
+  static final String KEYWORD_VALUE_FIELD = KEYWORD_SUGGESTIONS_FIELD + ".keyword_value";
+
+  /** The German full text fields searched by {@link #search}, besides the boosted ones. */
+  static final List<String> FULL_TEXT_FIELDS =
+      List.of(
+          "isoMetadata.description",
+          "isoMetadata.thesauri.title",
+          "isoMetadata.topicCategory",
+          "isoMetadata.contacts.name",
+          "isoMetadata.contacts.organisation",
+          "isoMetadata.pointsOfContact.name",
+          "isoMetadata.pointsOfContact.organisation",
+          "isoMetadata.lineage.title");
+
+  static final String FULL_TEXT_TITLE_FIELD = "isoMetadata.title_de";
+
+  static final String FULL_TEXT_KEYWORD_FIELD = "isoMetadata.keywords.keyword";
+
+  /** The fields highlighted in the search hits, in the order of their projections. */
+  private static final List<String> HIGHLIGHT_FIELDS =
+      Stream.concat(
+              Stream.of(FULL_TEXT_TITLE_FIELD, FULL_TEXT_KEYWORD_FIELD), FULL_TEXT_FIELDS.stream())
+          .toList();
+
+  private static final AggregationKey<Map<Status, Long>> STATUS_AGGREGATION =
+      AggregationKey.of("status");
+
+  private static final AggregationKey<Map<Boolean, Long>> APPROVED_AGGREGATION =
+      AggregationKey.of("approved");
+
+  private static final AggregationKey<Map<Role, Long>> ROLE_AGGREGATION =
+      AggregationKey.of("responsibleRole");
+
+  private static final AggregationKey<Map<String, Long>> KEYWORD_AGGREGATION =
+      AggregationKey.of("keywords");
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * The priority groups of the result list. Results are ordered by group first, collections
+   * assigned to the current user are sorted by their modification date (newest first), all others
+   * by title.
+   */
+  enum Priority {
+    ASSIGNED_TO_ME,
+    TEAM_MEMBER,
+    OTHER
+  }
+
+  /**
+   * Queries the metadata collections matching the given config from the search index. This
+   * evaluates the same filters and ordering as {@link
+   * de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification#searchMetadata}.
+   * Each priority group is queried separately and only the hits of the requested page are loaded
+   * from the database.
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public Page<MetadataCollection> query(
+      QueryConfig config, String myKeycloakId, Pageable pageable) {
+    return search(config, myKeycloakId, pageable, SearchProjectionFactory::entity);
+  }
+
+  /**
+   * Like {@link #query}, but projects the summaries from the index without loading any entity from
+   * the database.
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public Page<MetadataCollectionSummary> querySummaries(
+      QueryConfig config, String myKeycloakId, Pageable pageable) {
+    return search(config, myKeycloakId, pageable, f -> summaryProjection(f, myKeycloakId));
+  }
+
+  /**
+   * Counts the metadata collections matching the given config per facet. The status, approval and
+   * role counts are aggregated by the main query, the user specific counts are separate count
+   * queries.
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataFacets facets(QueryConfig config, String myKeycloakId) {
+    SearchSession searchSession = Search.session(entityManager);
+
+    SearchResult<?> result =
+        searchSession
+            .search(MetadataCollection.class)
+            .select(f -> f.id())
+            .where(
+                f ->
+                    f.bool()
+                        .with(
+                            b -> {
+                              // a boolean predicate without any clause matches nothing
+                              b.filter(f.matchAll());
+                              addFilters(f, b, config, myKeycloakId);
+                            }))
+            .aggregation(STATUS_AGGREGATION, f -> f.terms().field("status", Status.class))
+            .aggregation(APPROVED_AGGREGATION, f -> f.terms().field("approved", Boolean.class))
+            .aggregation(ROLE_AGGREGATION, f -> f.terms().field("responsibleRole", Role.class))
+            .fetch(0);
+
+    MetadataFacets facets = new MetadataFacets();
+    facets.setTotal(result.total().hitCount());
+    facets.getStatus().putAll(result.aggregation(STATUS_AGGREGATION));
+    facets.setApproved(result.aggregation(APPROVED_AGGREGATION).getOrDefault(true, 0L));
+    facets.getResponsibleRole().putAll(result.aggregation(ROLE_AGGREGATION));
+    facets.setAssignedToMe(
+        searchSession
+            .search(MetadataCollection.class)
+            .where(
+                f ->
+                    f.bool()
+                        .with(
+                            b -> {
+                              addFilters(f, b, config, myKeycloakId);
+                              b.filter(f.match().field("assignedUserId").matching(myKeycloakId));
+                            }))
+            .fetchTotalHitCount());
+    facets.setTeamMember(
+        searchSession
+            .search(MetadataCollection.class)
+            .where(
+                f ->
+                    f.bool()
+                        .with(
+                            b -> {
+                              addFilters(f, b, config, myKeycloakId);
+                              b.filter(f.match().field(TEAM_MEMBER_FIELD).matching(myKeycloakId));
+                            }))
+            .fetchTotalHitCount());
+
+    return facets;
+  }
+
+  /**
+   * Searches the German full text fields of the ISO metadata (title, description, keywords,
+   * thesauri, topic categories, contacts and lineage) for the given text. The hits are ordered by
+   * relevance and contain highlighted snippets of the matching fields.
+   *
+   * @param text the search text, in simple query string syntax (e.g. {@code +wasser -grund})
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public Page<MetadataSearchHit> search(String text, String myKeycloakId, Pageable pageable) {
+    SearchSession searchSession = Search.session(entityManager);
+
+    SearchResult<MetadataSearchHit> result =
+        searchSession
+            .search(MetadataCollection.class)
+            .select(
+                f ->
+                    f.composite(
+                        values -> toSearchHit(values),
+                        summaryProjection(f, myKeycloakId).toProjection(),
+                        f.score().toProjection(),
+                        f.composite(
+                                highlights -> highlights,
+                                HIGHLIGHT_FIELDS.stream()
+                                    .map(field -> f.highlight(field).toProjection())
+                                    .toArray(SearchProjection[]::new))
+                            .toProjection()))
+            .where(
+                f ->
+                    f.simpleQueryString()
+                        .field(FULL_TEXT_TITLE_FIELD)
+                        .boost(3)
+                        .field(FULL_TEXT_KEYWORD_FIELD)
+                        .boost(2)
+                        .fields(FULL_TEXT_FIELDS.toArray(String[]::new))
+                        .matching(text)
+                        .defaultOperator(BooleanOperator.AND))
+            .highlighter(
+                h ->
+                    h.unified()
+                        .encoder(HighlighterEncoder.HTML)
+                        .boundaryScanner()
+                        .sentence()
+                        .end()
+                        .numberOfFragments(3))
+            .sort(f -> f.score().then().field("metadataId"))
+            .fetch(
+                pageable.isPaged() ? (int) pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : null);
+
+    return new PageImpl<>(result.hits(), pageable, result.total().hitCount());
+  }
+
+  /**
+   * Suggests titles and keywords completing the given input. Every word of the input is matched as
+   * a prefix of a word of the title or keyword, e.g. "hochw ber" completes "Hochwassergefahren
+   * Berlin". The index is updated whenever a metadata collection changes, so suggestions are always
+   * current. Keywords are ranked by the number of metadata collections using them.
+   *
+   * @param size the maximum number of titles and keywords each
+   */
+  @PreAuthorize("isAuthenticated()")
+  @Transactional(readOnly = true)
+  public MetadataSuggestions suggest(String text, int size) {
+    SearchSession searchSession = Search.session(entityManager);
+
+    List<String> titles =
+        searchSession
+            .search(MetadataCollection.class)
+            .select(f -> f.field(TITLE_PROJECTION_FIELD, String.class))
+            .where(
+                f ->
+                    f.simpleQueryString()
+                        .field(TITLE_SUGGEST_FIELD)
+                        .matching(text)
+                        .defaultOperator(BooleanOperator.AND)
+                        .flags(SimpleQueryFlag.WHITESPACE))
+            .sort(f -> f.score().then().field(TITLE_FIELD))
+            .fetchHits(size);
+
+    // the keywords are nested documents, the filter restricts the aggregation to the matching ones
+    List<String> keywords =
+        searchSession
+            .search(MetadataCollection.class)
+            .where(f -> f.nested(KEYWORD_SUGGESTIONS_FIELD).add(keywordSuggestPredicate(f, text)))
+            .aggregation(
+                KEYWORD_AGGREGATION,
+                f ->
+                    f.terms()
+                        .field(KEYWORD_VALUE_FIELD, String.class)
+                        .filter(pf -> keywordSuggestPredicate(pf, text))
+                        .maxTermCount(size))
+            .fetch(0)
+            .aggregation(KEYWORD_AGGREGATION)
+            .keySet()
+            .stream()
+            .toList();
+
+    return new MetadataSuggestions(titles, keywords);
+  }
+
+  /** Matches the keywords with a word starting with each word of the given input. */
+  private static PredicateFinalStep keywordSuggestPredicate(SearchPredicateFactory f, String text) {
+    return f.simpleQueryString()
+        .field(KEYWORD_SUGGEST_FIELD)
+        .matching(text)
+        .defaultOperator(BooleanOperator.AND)
+        .flags(SimpleQueryFlag.WHITESPACE);
+  }
+
+  private static ProjectionFinalStep<MetadataCollectionSummary> summaryProjection(
+      SearchProjectionFactory<EntityReference, MetadataCollection> f, String myKeycloakId) {
+    return f.composite(
+        values -> toSummary(values, myKeycloakId),
+        f.id(BigInteger.class),
+        f.field("metadataId", String.class),
+        f.field(TITLE_PROJECTION_FIELD, String.class),
+        f.field("status", Status.class),
+        f.field("approved", Boolean.class),
+        f.field("assignedUserId", String.class),
+        f.field("responsibleRole", Role.class),
+        f.field("modified", OffsetDateTime.class),
+        f.field(TEAM_MEMBER_FIELD, String.class).multi());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MetadataSearchHit toSearchHit(List<?> values) {
+    List<List<String>> snippets = (List<List<String>>) values.get(2);
+    Map<String, List<String>> highlights = new LinkedHashMap<>();
+    for (int i = 0; i < HIGHLIGHT_FIELDS.size(); i++) {
+      if (!snippets.get(i).isEmpty()) {
+        highlights.put(toHighlightKey(HIGHLIGHT_FIELDS.get(i)), snippets.get(i));
+      }
+    }
+    return new MetadataSearchHit(
+        (MetadataCollectionSummary) values.get(0), (Float) values.get(1), highlights);
+  }
+
+  /** The path of the highlighted field within the ISO metadata. */
+  static String toHighlightKey(String field) {
+    return field.replaceFirst("^isoMetadata\\.", "").replace("title_de", "title");
+  }
+
+  private <T> Page<T> search(
+      QueryConfig config,
+      String myKeycloakId,
+      Pageable pageable,
+      Function<SearchProjectionFactory<EntityReference, MetadataCollection>, ProjectionFinalStep<T>>
+          projection) {
+    SearchSession searchSession = Search.session(entityManager);
+    SearchScope<MetadataCollection> scope = searchSession.scope(MetadataCollection.class);
+    SearchProjection<T> selection = projection.apply(scope.projection()).toProjection();
+
+    long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+    long remaining = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+    long total = 0;
+    List<T> content = new ArrayList<>();
+
+    for (Priority priority : Priority.values()) {
+      if (isExcluded(config, priority)) {
+        continue;
+      }
+
+      SearchQuery<T> query =
+          searchSession
+              .search(scope)
+              .select(selection)
+              .where(
+                  f ->
+                      f.bool()
+                          .with(
+                              b -> {
+                                addFilters(f, b, config, myKeycloakId);
+                                addPriority(f, b, priority, myKeycloakId);
+                              }))
+              .sort(
+                  f ->
+                      priority == Priority.ASSIGNED_TO_ME
+                          ? f.field("modified")
+                              .desc()
+                              .then()
+                              .field(TITLE_FIELD)
+                              .then()
+                              .field("metadataId")
+                          : f.field(TITLE_FIELD).then().field("metadataId"))
+              .toQuery();
+
+      if (remaining == 0) {
+        total += query.fetchTotalHitCount();
+        continue;
+      }
+
+      // offset + limit must not exceed Integer.MAX_VALUE
+      int limit = (int) Math.min(remaining, Integer.MAX_VALUE - offset);
+      SearchResult<T> result = query.fetch((int) offset, limit);
+      long hitCount = result.total().hitCount();
+
+      total += hitCount;
+      content.addAll(result.hits());
+      offset = Math.max(0, offset - hitCount);
+      remaining -= result.hits().size();
+    }
+
+    log.debug("Lucene query matched {} metadata collections", total);
+
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MetadataCollectionSummary toSummary(List<?> values, String myKeycloakId) {
+    List<String> teamMemberIds = (List<String>) values.get(8);
+    return new MetadataCollectionSummary(
+        (BigInteger) values.get(0),
+        (String) values.get(1),
+        (String) values.get(2),
+        (Status) values.get(3),
+        (Boolean) values.get(4),
+        (String) values.get(5),
+        (Role) values.get(6),
+        (OffsetDateTime) values.get(7),
+        myKeycloakId.equals(values.get(5)),
+        teamMemberIds.contains(myKeycloakId));
+  }
+
+  /** Whether the filters of the given config rule out all hits of the given priority group. */
+  static boolean isExcluded(QueryConfig config, Priority priority) {
+    Boolean assignedToMe = config.getIsAssignedToMe();
+    Boolean teamMember = config.getIsTeamMember();
+    return switch (priority) {
+      case ASSIGNED_TO_ME -> Boolean.FALSE.equals(assignedToMe);
+      case TEAM_MEMBER -> Boolean.TRUE.equals(assignedToMe) || Boolean.FALSE.equals(teamMember);
+      case OTHER -> Boolean.TRUE.equals(assignedToMe) || Boolean.TRUE.equals(teamMember);
+    };
+  }
+
+  private static void addFilters(
+      SearchPredicateFactory f,
+      BooleanPredicateOptionsCollector<?, ?> b,
+      QueryConfig config,
+      String myKeycloakId) {
+    // Text-Filter
+    if (config.getSearchTerm() != null && !config.getSearchTerm().isEmpty()) {
+      b.filter(
+          f.wildcard()
+              .field(TITLE_FIELD)
+              .matching(
+                  "*" + escapeWildcard(config.getSearchTerm().toLowerCase(Locale.ROOT)) + "*"));
+    }
+
+    // Valid-Filter
+    if (config.getIsApproved() != null) {
+      b.filter(f.match().field("approved").matching(config.getIsApproved()));
+    }
+
+    // Assigned-Filter
+    if (config.getIsAssignedToMe() != null) {
+      if (config.getIsAssignedToMe()) {
+        b.filter(f.match().field("assignedUserId").matching(myKeycloakId));
+      } else {
+        b.filter(f.exists().field("assignedUserId"));
+        b.mustNot(f.match().field("assignedUserId").matching(myKeycloakId));
+      }
+    }
+
+    // Team-Member-Filter
+    if (config.getIsTeamMember() != null) {
+      if (config.getIsTeamMember()) {
+        b.filter(f.match().field(TEAM_MEMBER_FIELD).matching(myKeycloakId));
+      } else {
+        b.mustNot(f.match().field(TEAM_MEMBER_FIELD).matching(myKeycloakId));
+      }
+    }
+
+    // Role-Filter
+    if (config.getAssignedRoles() != null && !config.getAssignedRoles().isEmpty()) {
+      b.filter(f.terms().field("responsibleRole").matchingAny(config.getAssignedRoles()));
+    }
+
+    // Extent-Filter
+    if (MetadataCollectionSpecification.hasExtent(config)) {
+      Extent extent = config.getExtent();
+      if (config.getSpatialRelation() == SpatialRelation.WITHIN) {
+        b.filter(f.range().field(EXTENT_FIELD + ".minx").atLeast(extent.getMinx()));
+        b.filter(f.range().field(EXTENT_FIELD + ".miny").atLeast(extent.getMiny()));
+        b.filter(f.range().field(EXTENT_FIELD + ".maxx").atMost(extent.getMaxx()));
+        b.filter(f.range().field(EXTENT_FIELD + ".maxy").atMost(extent.getMaxy()));
+      } else {
+        b.filter(f.range().field(EXTENT_FIELD + ".minx").atMost(extent.getMaxx()));
+        b.filter(f.range().field(EXTENT_FIELD + ".miny").atMost(extent.getMaxy()));
+        b.filter(f.range().field(EXTENT_FIELD + ".maxx").atLeast(extent.getMinx()));
+        b.filter(f.range().field(EXTENT_FIELD + ".maxy").atLeast(extent.getMiny()));
+      }
+    }
+  }
+
+  private static void addPriority(
+      SearchPredicateFactory f,
+      BooleanPredicateOptionsCollector<?, ?> b,
+      Priority priority,
+      String myKeycloakId) {
+    switch (priority) {
+      case ASSIGNED_TO_ME -> b.filter(f.match().field("assignedUserId").matching(myKeycloakId));
+      case TEAM_MEMBER -> {
+        b.mustNot(f.match().field("assignedUserId").matching(myKeycloakId));
+        b.filter(f.match().field(TEAM_MEMBER_FIELD).matching(myKeycloakId));
+      }
+      case OTHER -> {
+        b.mustNot(f.match().field("assignedUserId").matching(myKeycloakId));
+        b.mustNot(f.match().field(TEAM_MEMBER_FIELD).matching(myKeycloakId));
+      }
+    }
+  }
+
+  /** Escapes the special characters of Lucene wildcard patterns. */
+  static String escapeWildcard(String term) {
+    StringBuilder sb = new StringBuilder(term.length());
+    for (char c : term.toCharArray()) {
+      if (c == '\\' || c == '*' || c == '?') {
+        sb.append('\\');
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
@@ -465,14 +465,7 @@ public class PublicationService {
 
     // If the deleted metadata was source of a cloned dataset we need to remove the assignment on
     // deletion
-    var affectedClones = new ArrayList<String>();
-    List<MetadataCollection> metadataClones =
-        metadataCollectionRepository.findByClonedFromId(metadataId);
-    for (MetadataCollection metadataClone : metadataClones) {
-      metadataClone.setClonedFromId(null);
-      metadataCollectionRepository.save(metadataClone);
-      affectedClones.add(metadataClone.getMetadataId());
-    }
+    List<String> affectedClones = metadataCollectionRepository.unlinkClones(metadataId);
 
     metadataCollectionRepository.delete(metadataCollection);
 
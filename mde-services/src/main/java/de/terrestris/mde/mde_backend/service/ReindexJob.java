@@ -0,0 +1,86 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.model.dto.sse.ReindexMessage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.hibernate.search.mapper.pojo.massindexing.MassIndexingMonitor;
+
+/**
+ * A full reindexing run. Tracks the progress reported by the mass indexer and passes it on to the
+ * listener, at most once per {@link #PROGRESS_INTERVAL} and on every status change.
+ */
+class ReindexJob extends TrackedJob<ReindexMessage> implements MassIndexingMonitor {
+
+  static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
+  private final AtomicLong total = new AtomicLong(-1);
+
+  private final AtomicLong indexed = new AtomicLong();
+
+  private final AtomicLong lastProgress = new AtomicLong();
+
+  private volatile CompletableFuture<?> future;
+
+  ReindexJob(Consumer<ReindexMessage> listener) {
+    super("Reindexing started", listener);
+  }
+
+  /** Waits for the given mass indexing to complete, cancelling it if requested meanwhile. */
+  void await(CompletableFuture<?> indexing) {
+    future = indexing;
+    if (isCancelRequested()) {
+      indexing.cancel(true);
+    }
+    indexing.join();
+  }
+
+  @Override
+  void onCancel() {
+    CompletableFuture<?> indexing = future;
+    if (indexing != null) {
+      indexing.cancel(true);
+    }
+  }
+
+  @Override
+  ReindexMessage newMessage() {
+    ReindexMessage result = new ReindexMessage();
+    long millis = Math.max(1, elapsed().toMillis());
+    result.setTotal(total.get() < 0 ? null : total.get());
+    result.setIndexed(indexed.get());
+    result.setEntitiesPerSecond(Math.round(indexed.get() * 10000.0 / millis) / 10.0);
+    return result;
+  }
+
+  @Override
+  public void addToTotalCount(long count) {
+    total.accumulateAndGet(count, (current, added) -> Math.max(current, 0) + added);
+  }
+
+  @Override
+  public void documentsAdded(long count) {
+    indexed.addAndGet(count);
+    long now = System.currentTimeMillis();
+    long last = lastProgress.get();
+    if (now - last >= PROGRESS_INTERVAL.toMillis() && lastProgress.compareAndSet(last, now)) {
+      publish();
+    }
+  }
+
+  @Override
+  public void documentsBuilt(long count) {
+    // only the documents added to the index are reported
+  }
+
+  @Override
+  public void entitiesLoaded(long count) {
+    // only the documents added to the index are reported
+  }
+
+  @Override
+  public void indexingCompleted() {
+    // the job is finished by the caller, after the index state was written
+  }
+}
@@ -0,0 +1,43 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.model.dto.sse.RolloverMessage;
+import java.util.function.Consumer;
+
+/**
+ * A rollover run cloning metadata collections in batches. Passes the progress on to the listener
+ * after every batch and is cancelled after the current batch.
+ */
+class RolloverJob extends TrackedJob<RolloverMessage> {
+
+  private volatile Long total;
+
+  private volatile long processed;
+
+  private volatile long cloned;
+
+  RolloverJob(Consumer<RolloverMessage> listener) {
+    super("Rollover started", listener);
+  }
+
+  void setTotal(long total) {
+    this.total = total;
+    publish();
+  }
+
+  /** Records a committed batch. */
+  void batchDone(int processed, int cloned) {
+    this.processed += processed;
+    this.cloned += cloned;
+    publish();
+  }
+
+  @Override
+  RolloverMessage newMessage() {
+    RolloverMessage result = new RolloverMessage();
+    result.setTotal(total);
+    result.setProcessed(processed);
+    result.setCloned(cloned);
+    result.setSkipped(processed - cloned);
+    return result;
+  }
+}
@@ -0,0 +1,197 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import de.terrestris.mde.mde_backend.enumeration.Role;
+import de.terrestris.mde.mde_backend.event.sse.job.JobEvent;
+import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.RolloverRequest;
+import de.terrestris.mde.mde_backend.model.dto.sse.RolloverMessage;
+import de.terrestris.mde.mde_backend.specification.MetadataCollectionSpecification;
+import de.terrestris.mde.mde_backend.thread.TrackedTask;
+import de.terrestris.mde.mde_backend.thread.TrackingExecutorService;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Clones a whole set of metadata collections for a new year ("neuer Jahresstand") in the
+ * background. The clones are created like single clones, see {@link
+ * MetadataCollectionService#clone}, in batches of {@link #BATCH_SIZE} with one statement and
+ * transaction each.
+ *
+ * <p>Only the metadata collections without a metadata collection with the title of their clone are
+ * selected, so an interrupted, cancelled or failed rollover is resumed by starting it again with
+ * the same request. Metadata collections whose clone title exists already when their batch is
+ * cloned, e.g. because another one of the set maps to the same title, are skipped.
+ */
+@Log4j2
+@Service
+public class RolloverService {
+
+  /** The placeholder in the title pattern replaced by the title of the cloned metadata. */
+  public static final String TITLE_PLACEHOLDER = "{title}";
+
+  static final int BATCH_SIZE = 50;
+
+  private static final String ROLLOVER_TASK_ID = "rollover";
+
+  @Autowired private MetadataCollectionRepository repository;
+
+  @Autowired private SearchService searchService;
+
+  @Autowired private TrackingExecutorService executor;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  private final AtomicReference<RolloverJob> rolloverJob = new AtomicReference<>();
+
+  /**
+   * Starts cloning the metadata collections given by id or matching the query in the background.
+   * The progress is sent as {@code rollover} server sent event to the current user.
+   *
+   * @return The status of the started job.
+   * @throws IllegalArgumentException If the title pattern lacks {@link #TITLE_PLACEHOLDER} or
+   *     neither ids nor a query are given.
+   * @throws IllegalStateException If a rollover job is running already.
+   */
+  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
+  public RolloverMessage startRollover(RolloverRequest request) {
+    String titlePattern = request.getTitlePattern();
+    if (titlePattern == null || !titlePattern.contains(TITLE_PLACEHOLDER)) {
+      throw new IllegalArgumentException(
+          "The title pattern has to contain " + TITLE_PLACEHOLDER + ", got: " + titlePattern);
+    }
+    if (request.getMetadataIds() == null && request.getQuery() == null) {
+      throw new IllegalArgumentException("Either metadataIds or a query is required");
+    }
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String myKeycloakId =
+        ((JwtAuthenticationToken) authentication).getTokenAttributes().get("sub").toString();
+    Role role = MetadataCollectionService.getCreatorRole(authentication.getAuthorities());
+
+    RolloverJob job = createJob(myKeycloakId);
+    try {
+      executor.submit(
+          new TrackedTask(ROLLOVER_TASK_ID, () -> runJob(job, request, myKeycloakId, role)));
+    } catch (RuntimeException e) {
+      // otherwise the job stays running and blocks all further rollovers
+      job.finish(JobStatus.FAILED, "Rollover could not be started");
+      throw e;
+    }
+    return job.toMessage();
+  }
+
+  /** The status of the running or last rollover job, empty if none was started yet. */
+  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
+  public Optional<RolloverMessage> getRolloverStatus() {
+    return Optional.ofNullable(rolloverJob.get()).map(RolloverJob::toMessage);
+  }
+
+  /**
+   * Cancels the running rollover job after the current batch.
+   *
+   * @return Whether a job was running.
+   */
+  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR') or hasRole('ROLE_MDEEDITOR')")
+  public boolean cancelRollover() {
+    RolloverJob job = rolloverJob.get();
+    return job != null && job.cancel();
+  }
+
+  private RolloverJob createJob(String keycloakId) {
+    RolloverJob job =
+        new RolloverJob(
+            message ->
+                eventPublisher.publishEvent(new JobEvent(this, "rollover", message, keycloakId)));
+    RolloverJob previous = rolloverJob.get();
+    if ((previous != null && previous.isRunning()) || !rolloverJob.compareAndSet(previous, job)) {
+      throw new IllegalStateException("A rollover job is running already");
+    }
+    return job;
+  }
+
+  private void runJob(RolloverJob job, RolloverRequest request, String userId, Role role) {
+    log.info("Rollover started");
+    try {
+      Specification<MetadataCollection> sources =
+          request.getMetadataIds() != null
+              ? MetadataCollectionSpecification.hasMetadataId(request.getMetadataIds())
+              : MetadataCollectionSpecification.searchMetadata(request.getQuery(), userId);
+      // only the metadata collections not cloned by an earlier run are pending
+      Specification<MetadataCollection> pending =
+          sources.and(
+              MetadataCollectionSpecification.withoutClone(
+                  request.getTitlePattern(), TITLE_PLACEHOLDER));
+      List<String> metadataIds =
+          transactionTemplate.execute(
+              status -> repository.findMetadataIds(pending, Integer.MAX_VALUE));
+      job.setTotal(metadataIds.size());
+
+      for (int i = 0; i < metadataIds.size() && !job.isCancelRequested(); i += BATCH_SIZE) {
+        List<String> batch = metadataIds.subList(i, Math.min(i + BATCH_SIZE, metadataIds.size()));
+        Integer cloned =
+            transactionTemplate.execute(
+                status -> cloneBatch(batch, request.getTitlePattern(), userId, role));
+        job.batchDone(batch.size(), cloned == null ? 0 : cloned);
+      }
+
+      if (job.isCancelRequested()) {
+        job.finish(JobStatus.CANCELLED, "Rollover cancelled");
+      } else {
+        job.finish(JobStatus.FINISHED, "Rollover finished");
+      }
+    } catch (RuntimeException e) {
+      log.error("Rollover failed: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+      job.finish(JobStatus.FAILED, "Rollover failed");
+    }
+    RolloverMessage result = job.toMessage();
+    log.info(
+        "{}: {} metadata collections cloned, {} skipped",
+        result.getMessage(),
+        result.getCloned(),
+        result.getSkipped());
+  }
+
+  /**
+   * Clones a batch of metadata collections within the current transaction.
+   *
+   * @return The number of clones created.
+   */
+  private int cloneBatch(List<String> batch, String titlePattern, String userId, Role role) {
+    Map<String, String> metadataIds = new LinkedHashMap<>();
+    batch.forEach(metadataId -> metadataIds.put(metadataId, UUID.randomUUID().toString()));
+
+    // serializes with the title checks of concurrent creates, title changes and clones like they
+    // do, in a fixed order to avoid deadlocks
+    repository.findTitlesByMetadataIds(batch).stream()
+        .map(title -> titlePattern.replace(TITLE_PLACEHOLDER, title == null ? "" : title))
+        .sorted()
+        .distinct()
+        .forEach(cloneTitle -> repository.lockValue("title:" + cloneTitle));
+
+    Map<String, BigInteger> clones =
+        repository.insertClones(
+            metadataIds, titlePattern, MetadataCollectionService.CLONE_RESET_KEYS, userId, role);
+    searchService.index(clones.values());
+    return clones.size();
+  }
+}
@@ -1,30 +1,536 @@
 package de.terrestris.mde.mde_backend.service;
 
+import de.terrestris.mde.mde_backend.config.MdeLuceneAnalysisConfigurer;
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import de.terrestris.mde.mde_backend.event.sse.job.JobEvent;
+import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.sse.ReindexMessage;
+import de.terrestris.mde.mde_backend.properties.ReindexProperties;
+import de.terrestris.mde.mde_backend.thread.TrackedTask;
+import de.terrestris.mde.mde_backend.thread.TrackingExecutorService;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.log4j.Log4j2;
+import org.hibernate.ReadOnlyMode;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.search.engine.backend.metamodel.IndexDescriptor;
+import org.hibernate.search.engine.backend.metamodel.IndexFieldDescriptor;
+import org.hibernate.search.engine.backend.metamodel.IndexValueFieldTypeDescriptor;
+import org.hibernate.search.engine.search.query.SearchScroll;
+import org.hibernate.search.engine.search.query.SearchScrollResult;
 import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.massindexing.MassIndexer;
 import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Log4j2
 @Service
 public class SearchService {
 
+  /** The file in the index root storing the state the index was last brought up to date with. */
+  static final String STATE_FILE = "mde-index-state.properties";
+
+  /**
+   * Changes are caught up from this long before the last indexing, so transactions that were still
+   * running back then (and got an earlier modification timestamp) are not missed. All modification
+   * timestamps, of entity and of native updates, are taken from the application clock when the
+   * change is written, so the margin has to exceed the longest transaction writing metadata plus
+   * the clock skew between the application instances.
+   */
+  static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(5);
+
+  private static final int CATCH_UP_BATCH_SIZE = 100;
+
+  private static final String DIRECTORY_TYPE_PROPERTY = "hibernate.search.backend.directory.type";
+
+  private static final String DIRECTORY_ROOT_PROPERTY = "hibernate.search.backend.directory.root";
+
+  private static final String REINDEX_TASK_ID = "reindex";
+
   @PersistenceContext private EntityManager entityManager;
 
+  @Autowired private TrackingExecutorService executor;
+
+  @Autowired private ReindexProperties reindexProperties;
+
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private final AtomicReference<ReindexJob> reindexJob = new AtomicReference<>();
+
+  /**
+   * The modification timestamp up to which the index contains all changes and the hash of the index
+   * mapping it was built with.
+   */
+  record IndexState(OffsetDateTime modified, String mappingHash) {
+
+    static Optional<IndexState> read(Path file) {
+      if (!Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+      try (InputStream in = Files.newInputStream(file)) {
+        Properties properties = new Properties();
+        properties.load(in);
+        return Optional.of(
+            new IndexState(
+                OffsetDateTime.parse(properties.getProperty("modified")),
+                properties.getProperty("mappingHash")));
+      } catch (IOException | RuntimeException e) {
+        log.warn("Could not read the index state from {}: {}", file, e.getMessage());
+        return Optional.empty();
+      }
+    }
+
+    void write(Path file) throws IOException {
+      Properties properties = new Properties();
+      properties.setProperty("modified", modified.toString());
+      properties.setProperty("mappingHash", mappingHash);
+      Files.createDirectories(file.getParent());
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        properties.store(out, "State of the metadata index, delete to force a full reindex");
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /**
+   * Rebuilds the whole index and waits for it to finish. Fails if a reindexing job is running
+   * already.
+   */
   // TODO Since this is called in a startup task, we can't use @PreAuthorize here
   //  @PreAuthorize("hasRole('ROLE_MDEADMINISTRATOR')")
-  @Transactional(readOnly = true)
   public void reindexAll() {
+    ReindexJob job = createJob();
+    runJob(job);
+    if (job.getStatus() == JobStatus.FAILED) {
+      throw new RuntimeException("Reindexing failed");
+    }
+  }
+
+  /**
+   * Starts rebuilding the whole index in the background. The progress is broadcast as {@code
+   * reindex} server sent event.
+   *
+   * @return The status of the started job.
+   * @throws IllegalStateException If a reindexing job is running already.
+   */
+  public ReindexMessage startReindex() {
+    ReindexJob job = createJob();
+    try {
+      executor.submit(new TrackedTask(REINDEX_TASK_ID, () -> runJob(job)));
+    } catch (RuntimeException e) {
+      // otherwise the job stays running and blocks all further reindexing
+      job.finish(JobStatus.FAILED, "Reindexing could not be started");
+      throw e;
+    }
+    return job.toMessage();
+  }
+
+  /**
+   * Cancels the running reindexing job.
+   *
+   * @return Whether a job was running.
+   */
+  public boolean cancelReindex() {
+    ReindexJob job = reindexJob.get();
+    return job != null && job.cancel();
+  }
+
+  /** The status of the running or last reindexing job, empty if none was started yet. */
+  public Optional<ReindexMessage> getReindexStatus() {
+    return Optional.ofNullable(reindexJob.get()).map(ReindexJob::toMessage);
+  }
+
+  public boolean isReindexing() {
+    ReindexJob job = reindexJob.get();
+    return job != null && job.isRunning();
+  }
+
+  /**
+   * Updates the document of the given metadata collection when the current transaction commits.
+   * Needed for changes made by native queries, which the automatic indexing does not notice.
+   */
+  public void index(MetadataCollection metadataCollection) {
+    Search.session(entityManager).indexingPlan().addOrUpdate(metadataCollection);
+  }
+
+  /**
+   * Updates the document of the metadata collection with the given id when the current transaction
+   * commits. Needed for changes made through other entities mapped to the same row. The changes
+   * have to be flushed before, the metadata collection is loaded read-only from the database.
+   */
+  public void index(BigInteger id) {
+    MetadataCollection metadataCollection =
+        entityManager.find(
+            MetadataCollection.class,
+            id,
+            CacheRetrieveMode.BYPASS,
+            CacheStoreMode.BYPASS,
+            ReadOnlyMode.READ_ONLY);
+    if (metadataCollection != null) {
+      index(metadataCollection);
+    }
+  }
+
+  /**
+   * Updates the documents of the metadata collections with the given ids when the current
+   * transaction commits, loading them with a single query. See {@link #index(BigInteger)}.
+   */
+  public void index(Collection<BigInteger> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    entityManager
+        .createQuery(
+            "SELECT m FROM MetadataCollection m WHERE m.id IN :ids", MetadataCollection.class)
+        .setParameter("ids", ids)
+        .setCacheRetrieveMode(CacheRetrieveMode.BYPASS)
+        .setCacheStoreMode(CacheStoreMode.BYPASS)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .getResultList()
+        .forEach(this::index);
+  }
+
+  /**
+   * Updates the documents of the given metadata in the index, purging the ones that do not exist
+   * anymore.
+   */
+  public void reindex(Collection<BigInteger> ids) {
     SearchSession searchSession = Search.session(entityManager);
+    List<BigInteger> remaining = new ArrayList<>(ids);
+    for (int i = 0; i < remaining.size(); i += CATCH_UP_BATCH_SIZE) {
+      List<BigInteger> batch =
+          remaining.subList(i, Math.min(i + CATCH_UP_BATCH_SIZE, remaining.size()));
+      Set<BigInteger> found = new HashSet<>();
+      entityManager
+          .createQuery(
+              "SELECT m FROM MetadataCollection m WHERE m.id IN :ids", MetadataCollection.class)
+          .setParameter("ids", batch)
+          .getResultList()
+          .forEach(
+              metadata -> {
+                searchSession.indexingPlan().addOrUpdate(metadata);
+                found.add(metadata.getId());
+              });
+      batch.stream()
+          .filter(id -> !found.contains(id))
+          .forEach(id -> searchSession.indexingPlan().purge(MetadataCollection.class, id, null));
+      searchSession.indexingPlan().execute();
+      entityManager.clear();
+    }
+  }
+
+  private ReindexJob createJob() {
+    ReindexJob job = new ReindexJob(this::publishProgress);
+    ReindexJob previous = reindexJob.get();
+    if ((previous != null && previous.isRunning()) || !reindexJob.compareAndSet(previous, job)) {
+      throw new IllegalStateException("A reindexing job is running already");
+    }
+    return job;
+  }
+
+  private void runJob(ReindexJob job) {
     log.info("Reindexing started");
+    job.publish();
+    try {
+      OffsetDateTime modified = lastModified();
+      // a cancelled or failed rebuild leaves a partial index, that must not be caught up later
+      deleteState();
+      MassIndexer indexer =
+          Search.mapping(entityManager.getEntityManagerFactory())
+              .scope(MetadataCollection.class)
+              .massIndexer()
+              .dropAndCreateSchemaOnStart(true)
+              .typesToIndexInParallel(reindexProperties.getTypesToIndexInParallel())
+              .batchSizeToLoadObjects(reindexProperties.getBatchSizeToLoadObjects())
+              .threadsToLoadObjects(reindexProperties.getThreadsToLoadObjects())
+              .monitor(job);
+      job.await(indexer.start().toCompletableFuture());
+      writeState(new IndexState(modified, mappingHash()));
+      job.finish(JobStatus.FINISHED, "Reindexing finished");
+    } catch (CancellationException e) {
+      job.finish(JobStatus.CANCELLED, "Reindexing cancelled");
+    } catch (RuntimeException e) {
+      log.error("Reindexing failed: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+      job.finish(JobStatus.FAILED, "Reindexing failed");
+    }
+    ReindexMessage result = job.toMessage();
+    log.info(
+        "{}: {} entities indexed, {} entities per second",
+        result.getMessage(),
+        result.getIndexed(),
+        result.getEntitiesPerSecond());
+  }
+
+  private void publishProgress(ReindexMessage message) {
+    eventPublisher.publishEvent(new JobEvent(this, "reindex", message, null));
+  }
+
+  /**
+   * Brings a persistent index up to date with the database. Only the metadata modified since the
+   * last indexing is reindexed and documents of deleted metadata are purged. Falls back to {@link
+   * #reindexAll()} if the index is not stored on the local filesystem, has not been built with the
+   * current mapping or cannot be read. No transaction is held open while the index is rebuilt, only
+   * the catch-up runs in one.
+   */
+  public void updateIndex() {
+    Optional<Path> stateFile = stateFile();
+    if (stateFile.isEmpty()) {
+      log.info("The index is not stored on the local filesystem, rebuilding the index");
+      reindexAll();
+      return;
+    }
+    IndexState state = IndexState.read(stateFile.get()).orElse(null);
+    if (state == null) {
+      log.info("No index state found, rebuilding the index");
+      reindexAll();
+      return;
+    }
+    if (!state.mappingHash().equals(mappingHash())) {
+      log.info("The index mapping changed, rebuilding the index");
+      reindexAll();
+      return;
+    }
+    OffsetDateTime modified = lastModified();
+    if (modified.isBefore(state.modified())) {
+      log.info("The database is older than the index (e.g. restored from a backup), rebuilding");
+      reindexAll();
+      return;
+    }
+    if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> isIndexUsable()))) {
+      reindexAll();
+      return;
+    }
+
+    OffsetDateTime since = state.modified().minus(CATCH_UP_MARGIN);
+    log.info("Updating the index with the changes since {}", since);
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          SearchSession searchSession = Search.session(entityManager);
+          reindexModified(searchSession, since);
+          purgeDeleted(searchSession);
+        });
+    writeState(new IndexState(modified, state.mappingHash()));
+    log.info("Updating the index finished");
+  }
+
+  /**
+   * Reindexes the metadata modified after the given timestamp (or without modification timestamp)
+   * in batches. The mass indexer is not used here, as it only adds documents and would duplicate
+   * the ones already in the index.
+   */
+  private void reindexModified(SearchSession searchSession, OffsetDateTime since) {
+    BigInteger lastId = BigInteger.ZERO;
+    int count = 0;
+    List<MetadataCollection> batch;
+    do {
+      batch =
+          entityManager
+              .createQuery(
+                  "SELECT m FROM MetadataCollection m"
+                      + " WHERE (m.modified > :since OR m.modified IS NULL) AND m.id > :lastId"
+                      + " ORDER BY m.id",
+                  MetadataCollection.class)
+              .setParameter("since", since)
+              .setParameter("lastId", lastId)
+              .setMaxResults(CATCH_UP_BATCH_SIZE)
+              .getResultList();
+      batch.forEach(searchSession.indexingPlan()::addOrUpdate);
+      searchSession.indexingPlan().execute();
+      entityManager.clear();
+      count += batch.size();
+      if (!batch.isEmpty()) {
+        lastId = batch.getLast().getId();
+      }
+    } while (batch.size() == CATCH_UP_BATCH_SIZE);
+    log.info("Reindexed {} modified metadata", count);
+  }
+
+  /**
+   * Checks that the index can be searched and is not empty while there are metadata in the database
+   * (e.g. because the index directory was deleted).
+   */
+  private boolean isIndexUsable() {
+    try {
+      long indexed =
+          Search.session(entityManager)
+              .search(MetadataCollection.class)
+              .where(f -> f.matchAll())
+              .fetchTotalHitCount();
+      long stored =
+          entityManager
+              .createQuery("SELECT count(m) FROM MetadataCollection m", Long.class)
+              .getSingleResult();
+      if (indexed == 0 && stored > 0) {
+        log.info("The index is empty, rebuilding the index");
+        return false;
+      }
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("The index cannot be read, rebuilding the index: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+      return false;
+    }
+  }
+
+  /**
+   * Purges the documents of metadata that do not exist in the database anymore. The ids in the
+   * index are scrolled through in batches, each of them is checked against the database with a
+   * single query.
+   */
+  private void purgeDeleted(SearchSession searchSession) {
+    List<BigInteger> deleted = new ArrayList<>();
+    try (SearchScroll<BigInteger> scroll =
+        searchSession
+            .search(MetadataCollection.class)
+            .select(f -> f.id(BigInteger.class))
+            .where(f -> f.matchAll())
+            .scroll(CATCH_UP_BATCH_SIZE)) {
+      for (SearchScrollResult<BigInteger> chunk = scroll.next();
+          chunk.hasHits();
+          chunk = scroll.next()) {
+        Set<BigInteger> existing =
+            new HashSet<>(
+                entityManager
+                    .createQuery(
+                        "SELECT m.id FROM MetadataCollection m WHERE m.id IN :ids",
+                        BigInteger.class)
+                    .setParameter("ids", chunk.hits())
+                    .getResultList());
+        chunk.hits().stream().filter(id -> !existing.contains(id)).forEach(deleted::add);
+      }
+    }
+    if (deleted.isEmpty()) {
+      return;
+    }
+    log.info("Purging {} deleted metadata from the index", deleted.size());
+    deleted.forEach(id -> searchSession.indexingPlan().purge(MetadataCollection.class, id, null));
+    searchSession.indexingPlan().execute();
+  }
+
+  /** The latest modification timestamp in the database, the epoch if there are no metadata. */
+  private OffsetDateTime lastModified() {
+    OffsetDateTime modified =
+        entityManager
+            .createQuery("SELECT max(m.modified) FROM MetadataCollection m", OffsetDateTime.class)
+            .getSingleResult();
+    return modified == null ? Instant.EPOCH.atOffset(ZoneOffset.UTC) : modified;
+  }
+
+  /** The state file, empty if the index is not stored on the local filesystem. */
+  private Optional<Path> stateFile() {
+    Map<String, Object> properties = entityManager.getEntityManagerFactory().getProperties();
+    Object type = properties.getOrDefault(DIRECTORY_TYPE_PROPERTY, "local-filesystem");
+    Object root = properties.get(DIRECTORY_ROOT_PROPERTY);
+    if (!"local-filesystem".equals(type.toString()) || root == null) {
+      return Optional.empty();
+    }
+    return Optional.of(Path.of(root.toString()).resolve(STATE_FILE));
+  }
+
+  private void writeState(IndexState state) {
+    stateFile()
+        .ifPresent(
+            file -> {
+              try {
+                state.write(file);
+              } catch (IOException e) {
+                log.warn("Could not write the index state to {}: {}", file, e.getMessage());
+              }
+            });
+  }
+
+  private void deleteState() {
+    stateFile()
+        .ifPresent(
+            file -> {
+              try {
+                Files.deleteIfExists(file);
+              } catch (IOException e) {
+                log.warn("Could not delete the index state {}: {}", file, e.getMessage());
+              }
+            });
+  }
+
+  /**
+   * Hashes the fields of the index with their types and analyzers, so an index built with a
+   * different mapping is detected. Changes within an analyzer definition are not visible here and
+   * have to be tracked by {@link MdeLuceneAnalysisConfigurer#ANALYSIS_VERSION}.
+   */
+  private String mappingHash() {
+    IndexDescriptor descriptor =
+        Search.mapping(entityManager.getEntityManagerFactory())
+            .indexedEntity(MetadataCollection.class)
+            .indexManager()
+            .descriptor();
+    StringBuilder mapping =
+        new StringBuilder("analysis:" + MdeLuceneAnalysisConfigurer.ANALYSIS_VERSION + "\n");
+    descriptor.staticFields().stream()
+        .sorted(Comparator.comparing(IndexFieldDescriptor::absolutePath))
+        .forEach(field -> mapping.append(describe(field)).append('\n'));
+    return hash(mapping.toString());
+  }
+
+  static String describe(IndexFieldDescriptor field) {
+    StringBuilder description = new StringBuilder(field.absolutePath());
+    if (field.multiValued()) {
+      description.append(" multi");
+    }
+    if (field.isObjectField()) {
+      return description.append(" object").toString();
+    }
+    IndexValueFieldTypeDescriptor type = field.toValueField().type();
+    description.append(' ').append(type.valueClass().getName());
+    description.append(type.searchable() ? " searchable" : "");
+    description.append(type.sortable() ? " sortable" : "");
+    description.append(type.projectable() ? " projectable" : "");
+    description.append(type.aggregable() ? " aggregable" : "");
+    type.analyzerName().ifPresent(name -> description.append(" analyzer=").append(name));
+    type.searchAnalyzerName().ifPresent(name -> description.append(" search=").append(name));
+    type.normalizerName().ifPresent(name -> description.append(" normalizer=").append(name));
+    return description.toString();
+  }
+
+  static String hash(String value) {
     try {
-      searchSession.massIndexer().startAndWait();
-      log.info("Reindexing finished");
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Reindexing failed", e);
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
     }
   }
 }
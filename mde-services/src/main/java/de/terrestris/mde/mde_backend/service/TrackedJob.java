@@ -0,0 +1,94 @@
+package de.terrestris.mde.mde_backend.service;
+
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import de.terrestris.mde.mde_backend.model.dto.sse.JobMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * A job running in the background. Tracks the status of the job and passes its progress on to a
+ * listener on every status change and whenever the subclass publishes it.
+ *
+ * @param <M> the message reporting the progress of the job
+ */
+abstract class TrackedJob<M extends JobMessage> {
+
+  private final Instant started = Instant.now();
+
+  private final Consumer<M> listener;
+
+  private volatile JobStatus status = JobStatus.RUNNING;
+
+  private volatile Instant finished;
+
+  private volatile String message;
+
+  private volatile boolean cancelRequested;
+
+  TrackedJob(String message, Consumer<M> listener) {
+    this.message = message;
+    this.listener = listener;
+  }
+
+  JobStatus getStatus() {
+    return status;
+  }
+
+  boolean isRunning() {
+    return status == JobStatus.RUNNING;
+  }
+
+  boolean isCancelRequested() {
+    return cancelRequested;
+  }
+
+  /**
+   * Requests the job to be cancelled. The job checks the request itself and is finished by the
+   * caller running it.
+   *
+   * @return Whether the job was still running.
+   */
+  boolean cancel() {
+    if (!isRunning()) {
+      return false;
+    }
+    cancelRequested = true;
+    onCancel();
+    return true;
+  }
+
+  /** Called when a cancel was requested, e.g. to interrupt the running work. */
+  void onCancel() {
+    // the job checks isCancelRequested() by default
+  }
+
+  void finish(JobStatus status, String message) {
+    this.finished = Instant.now();
+    this.message = message;
+    this.status = status;
+    publish();
+  }
+
+  /** The time the job has been running, until it finished. */
+  Duration elapsed() {
+    Instant end = finished == null ? Instant.now() : finished;
+    return Duration.between(started, end);
+  }
+
+  void publish() {
+    listener.accept(toMessage());
+  }
+
+  M toMessage() {
+    M result = newMessage();
+    result.setMessage(message);
+    result.setStatus(status);
+    result.setStarted(started);
+    result.setFinished(finished);
+    return result;
+  }
+
+  /** Creates a message with the job specific progress. */
+  abstract M newMessage();
+}
@@ -2,11 +2,13 @@ package de.terrestris.mde.mde_backend.service;
 
 import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
 import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.MetadataUserReferences;
 import de.terrestris.mde.mde_backend.model.dto.UserDetails;
 import de.terrestris.mde.mde_backend.thread.TrackedTask;
 import de.terrestris.mde.mde_backend.thread.TrackingExecutorService;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -45,7 +47,9 @@ public class UserCleanupService {
 
   @Autowired private TrackingExecutorService trackingExecutorService;
 
-  @Autowired private MetadataCollectionRepository metadataCollectionRepository;
+  @Autowired private MetadataCollectionRepository repository;
+
+  @Autowired private MetadataCollectionWorkflowService workflowService;
 
   /**
    * Holds all user-reference changes that were applied to a single {@link MetadataCollection}
@@ -120,8 +124,9 @@ public class UserCleanupService {
 
                 List<CollectionCleanupRecord> changedRecords = new ArrayList<>();
 
-                Page<MetadataCollection> collectionsPage =
-                    metadataCollectionRepository.findAll(PageRequest.of(0, COLLECTIONS_BATCH_SIZE));
+                // only the user columns are loaded, not the JSON documents
+                Page<MetadataUserReferences> collectionsPage =
+                    repository.findUserReferences(PageRequest.of(0, COLLECTIONS_BATCH_SIZE));
                 long totalCollections = collectionsPage.getTotalElements();
 
                 log.trace(
@@ -134,8 +139,7 @@ public class UserCleanupService {
                     .forEach(mc -> removeUser(mc, keycloakUsers).ifPresent(changedRecords::add));
 
                 while (collectionsPage.hasNext()) {
-                  collectionsPage =
-                      metadataCollectionRepository.findAll(collectionsPage.nextPageable());
+                  collectionsPage = repository.findUserReferences(collectionsPage.nextPageable());
                   collectionsPage
                       .getContent()
                       .forEach(mc -> removeUser(mc, keycloakUsers).ifPresent(changedRecords::add));
@@ -215,26 +219,27 @@ public class UserCleanupService {
    *   <li>{@code teamMemberIds} – all ids of former Keycloak users are removed from the set.
    * </ul>
    *
-   * <p>If any change was made the collection is persisted immediately and a {@link
-   * CollectionCleanupRecord} capturing the removed ids is returned. If no ids were stale, {@link
-   * Optional#empty()} is returned and no database write occurs.
+   * <p>If any id was stale the ids are removed immediately by a single UPDATE statement, which
+   * keeps concurrent changes of the other references, and a {@link CollectionCleanupRecord}
+   * capturing the removed ids is returned. If no ids were stale, {@link Optional#empty()} is
+   * returned and no database write occurs.
    *
-   * @param metadataCollection the {@link MetadataCollection} to inspect and potentially update
+   * @param metadataCollection the user references of the {@link MetadataCollection} to inspect
    * @param keycloakUsers the current list of all users registered in Keycloak
    * @return an {@link Optional} containing a {@link CollectionCleanupRecord} with the removed ids
    *     if any changes were made, or {@link Optional#empty()} if the collection was clean
    */
   private Optional<CollectionCleanupRecord> removeUser(
-      MetadataCollection metadataCollection, List<UserDetails> keycloakUsers) {
+      MetadataUserReferences metadataCollection, List<UserDetails> keycloakUsers) {
 
     log.trace(
         "Checking MetadataCollection ID {} ({})",
-        metadataCollection.getId(),
-        metadataCollection.getMetadataId());
+        metadataCollection.id(),
+        metadataCollection.metadataId());
 
-    String ownerId = metadataCollection.getOwnerId();
-    String assignedUserId = metadataCollection.getAssignedUserId();
-    Set<String> teamMemberIds = metadataCollection.getTeamMemberIds();
+    String ownerId = metadataCollection.ownerId();
+    String assignedUserId = metadataCollection.assignedUserId();
+    Set<String> teamMemberIds = metadataCollection.teamMemberIds();
 
     String removedOwnerId = null;
     String removedAssignedUserId = null;
@@ -243,14 +248,12 @@ public class UserCleanupService {
     // Check if ownerId exists in Keycloak
     if (ownerId != null && keycloakUsers.stream().noneMatch(u -> u.getId().equals(ownerId))) {
       removedOwnerId = ownerId;
-      metadataCollection.setOwnerId(null);
     }
 
     // Check if assignedUserId exists in Keycloak
     if (assignedUserId != null
         && keycloakUsers.stream().noneMatch(u -> u.getId().equals(assignedUserId))) {
       removedAssignedUserId = assignedUserId;
-      metadataCollection.setAssignedUserId(null);
     }
 
     // Check teamMemberIds
@@ -261,19 +264,25 @@ public class UserCleanupService {
               removedTeamMemberIds.add(teamMemberId);
             }
           });
-      teamMemberIds.removeIf(removedTeamMemberIds::contains);
     }
 
     CollectionCleanupRecord record =
         new CollectionCleanupRecord(
-            metadataCollection.getId(),
-            metadataCollection.getMetadataId(),
+            metadataCollection.id(),
+            metadataCollection.metadataId(),
             removedOwnerId,
             removedAssignedUserId,
             removedTeamMemberIds);
 
     if (record.hasChanges()) {
-      metadataCollectionRepository.save(metadataCollection);
+      Set<String> removedUserIds = new HashSet<>(removedTeamMemberIds);
+      if (removedOwnerId != null) {
+        removedUserIds.add(removedOwnerId);
+      }
+      if (removedAssignedUserId != null) {
+        removedUserIds.add(removedAssignedUserId);
+      }
+      workflowService.removeUsers(metadataCollection.metadataId(), removedUserIds);
       return Optional.of(record);
     }
 
@@ -1,10 +1,17 @@
 package de.terrestris.mde.mde_backend.specification;
 
+import de.terrestris.mde.mde_backend.config.MdeFunctionContributor;
+import de.terrestris.mde.mde_backend.enumeration.SpatialRelation;
 import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.MetadataQueryCursor;
 import de.terrestris.mde.mde_backend.model.dto.QueryConfig;
+import de.terrestris.mde.mde_backend.model.json.Extent;
 import jakarta.persistence.criteria.*;
+import java.math.BigInteger;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.domain.Specification;
 
@@ -27,25 +34,21 @@ public class MetadataCollectionSpecification {
       }
 
       // Assigned-Filter
+      Predicate isAssignedToMe = isAssignedTo(root, cb, myKeycloakId);
       if (config.getIsAssignedToMe() != null) {
         if (config.getIsAssignedToMe()) {
-          predicates.add(cb.equal(root.get("assignedUserId"), myKeycloakId));
+          predicates.add(isAssignedToMe);
         } else {
           predicates.add(cb.notEqual(root.get("assignedUserId"), myKeycloakId));
         }
       }
 
-      // Team-Member-Filter (reused in sortPriority)
-      Expression<Integer> arrayPos =
-          cb.function(
-              "array_position", Integer.class, root.get("teamMemberIds"), cb.literal(myKeycloakId));
-      Expression<Boolean> isTeamMember = cb.greaterThan(arrayPos, 0);
-
+      // Team-Member-Filter
       if (config.getIsTeamMember() != null) {
         if (config.getIsTeamMember()) {
-          predicates.add(cb.isTrue(isTeamMember));
+          predicates.add(isTeamMember(root, cb, myKeycloakId));
         } else {
-          predicates.add(cb.isFalse(isTeamMember));
+          predicates.add(isNoTeamMember(root, cb, myKeycloakId));
         }
       }
 
@@ -54,11 +57,24 @@ public class MetadataCollectionSpecification {
         predicates.add(root.get("responsibleRole").in(config.getAssignedRoles()));
       }
 
-      Expression<Object> sortPriority =
-          cb.selectCase()
-              .when(cb.equal(root.get("assignedUserId"), myKeycloakId), 0)
-              .when(cb.isTrue(isTeamMember), 1)
-              .otherwise(2);
+      // Extent-Filter
+      if (hasExtent(config)) {
+        Extent extent = config.getExtent();
+        predicates.add(
+            cb.isTrue(
+                cb.function(
+                    config.getSpatialRelation() == SpatialRelation.WITHIN
+                        ? MdeFunctionContributor.BOX_WITHIN
+                        : MdeFunctionContributor.BOX_INTERSECTS,
+                    Boolean.class,
+                    root.get("extentBox"),
+                    cb.literal(extent.getMinx()),
+                    cb.literal(extent.getMiny()),
+                    cb.literal(extent.getMaxx()),
+                    cb.literal(extent.getMaxy()))));
+      }
+
+      Expression<Integer> sortPriority = sortPriority(root, cb, myKeycloakId);
 
       query.orderBy(
           // first sort by priority (assigned to me, team member, not assigned)
@@ -66,12 +82,131 @@ public class MetadataCollectionSpecification {
           // sub sort by modified date if assigned to me
           cb.desc(
               cb.selectCase()
-                  .when(cb.equal(root.get("assignedUserId"), myKeycloakId), root.get("modified"))
+                  .when(isAssignedToMe, root.get("modified"))
                   .otherwise(cb.nullLiteral(Instant.class))),
           // ... otherwise sort by title
-          cb.asc(root.get("title")));
+          cb.asc(root.get("title")),
+          // tie-breaker for stable paging
+          cb.asc(root.get("id")));
 
       return cb.and(predicates.toArray(new Predicate[0]));
     };
   }
+
+  /**
+   * Restricts the results of {@link #searchMetadata} to the rows following the given cursor in its
+   * ordering.
+   */
+  public static Specification<MetadataCollection> after(
+      MetadataQueryCursor cursor, String myKeycloakId) {
+    return (Root<MetadataCollection> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+      Expression<Integer> sortPriority = sortPriority(root, cb, myKeycloakId);
+      Path<OffsetDateTime> modified = root.get("modified");
+      Path<String> title = root.get("title");
+      Path<BigInteger> id = root.get("id");
+
+      // rows with the same title as the cursor follow it if their id is greater
+      Predicate titleAfter;
+      if (cursor.title() == null) {
+        titleAfter = cb.and(cb.isNull(title), cb.greaterThan(id, cursor.id()));
+      } else {
+        titleAfter =
+            cb.or(
+                cb.greaterThan(title, cursor.title()),
+                cb.isNull(title),
+                cb.and(cb.equal(title, cursor.title()), cb.greaterThan(id, cursor.id())));
+      }
+
+      // collections assigned to me are sorted by modification date (descending) first, with the
+      // legacy rows without modification date first
+      Predicate withinPriority = titleAfter;
+      if (cursor.priority() == 0 && cursor.modified() != null) {
+        withinPriority =
+            cb.or(
+                cb.lessThan(modified, cursor.modified()),
+                cb.and(cb.equal(modified, cursor.modified()), titleAfter));
+      } else if (cursor.priority() == 0) {
+        withinPriority = cb.or(cb.isNotNull(modified), cb.and(cb.isNull(modified), titleAfter));
+      }
+
+      return cb.or(
+          cb.greaterThan(sortPriority, cursor.priority()),
+          cb.and(cb.equal(sortPriority, cursor.priority()), withinPriority));
+    };
+  }
+
+  /** Restricts the results to the metadata collections with the given metadata ids. */
+  public static Specification<MetadataCollection> hasMetadataId(Collection<String> metadataIds) {
+    return (Root<MetadataCollection> root, CriteriaQuery<?> query, CriteriaBuilder cb) ->
+        root.get("metadataId").in(metadataIds);
+  }
+
+  /**
+   * Restricts the results to the metadata collections without a clone of the given title pattern,
+   * i.e. no metadata collection has the title with {@code placeholder} replaced by their title.
+   */
+  public static Specification<MetadataCollection> withoutClone(
+      String titlePattern, String placeholder) {
+    return (Root<MetadataCollection> root, CriteriaQuery<?> query, CriteriaBuilder cb) -> {
+      Expression<String> cloneTitle =
+          cb.function(
+              "replace",
+              String.class,
+              cb.literal(titlePattern),
+              cb.literal(placeholder),
+              cb.coalesce(root.get("title"), ""));
+      Subquery<Integer> clone = query.subquery(Integer.class);
+      Root<MetadataCollection> other = clone.from(MetadataCollection.class);
+      clone.select(cb.literal(1)).where(cb.equal(other.get("title"), cloneTitle));
+      return cb.not(cb.exists(clone));
+    };
+  }
+
+  /** Whether the given config filters by a complete extent. */
+  public static boolean hasExtent(QueryConfig config) {
+    Extent extent = config.getExtent();
+    return extent != null
+        && extent.getMinx() != null
+        && extent.getMiny() != null
+        && extent.getMaxx() != null
+        && extent.getMaxy() != null;
+  }
+
+  /**
+   * The sort priority of the metadata collection for the given user: 0 if it is assigned to the
+   * user, 1 if the user is a team member and 2 otherwise.
+   */
+  public static Expression<Integer> sortPriority(
+      Root<MetadataCollection> root, CriteriaBuilder cb, String keycloakId) {
+    return cb.<Integer>selectCase()
+        .when(isAssignedTo(root, cb, keycloakId), 0)
+        .when(isTeamMember(root, cb, keycloakId), 1)
+        .otherwise(2);
+  }
+
+  /** Whether the metadata collection is assigned to the given user. */
+  public static Predicate isAssignedTo(
+      Root<MetadataCollection> root, CriteriaBuilder cb, String keycloakId) {
+    return cb.equal(root.get("assignedUserId"), keycloakId);
+  }
+
+  /**
+   * Whether the given user is a member of the metadata collection's team. Uses array containment,
+   * so it can be served by the GIN index on team_member_ids.
+   */
+  public static Predicate isTeamMember(
+      Root<MetadataCollection> root, CriteriaBuilder cb, String keycloakId) {
+    return cb.isTrue(
+        cb.function(
+            MdeFunctionContributor.TEXT_ARRAY_CONTAINS,
+            Boolean.class,
+            root.get("teamMemberIds"),
+            cb.literal(keycloakId)));
+  }
+
+  /** Whether the given user is not a member of the metadata collection's team. */
+  public static Predicate isNoTeamMember(
+      Root<MetadataCollection> root, CriteriaBuilder cb, String keycloakId) {
+    return cb.or(cb.isNull(root.get("teamMemberIds")), cb.not(isTeamMember(root, cb, keycloakId)));
+  }
 }
@@ -0,0 +1,72 @@
+package de.terrestris.mde.mde_backend.startup;
+
+import de.terrestris.mde.mde_backend.properties.QueryProperties;
+import java.util.List;
+import java.util.regex.Pattern;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks on startup whether the database plans the title and extent queries with their indexes and
+ * logs a warning otherwise (e.g. when the migration creating them did not run). Sequential scans
+ * are disabled for the check, as the planner would prefer them for small tables anyway.
+ */
+@Log4j2
+@Component
+public class QueryPlanCheck {
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Autowired private QueryProperties queryProperties;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (!Boolean.TRUE.equals(queryProperties.getIndexCheck())) {
+      return;
+    }
+    try {
+      checkPlan(
+          "title search",
+          "SELECT id FROM metadata_collection WHERE lower(title) LIKE '%index check%'",
+          "idx_metadata_collection_title_trgm");
+      checkPlan(
+          "duplicate title check",
+          "SELECT id FROM metadata_collection WHERE title = 'index check'",
+          "idx_metadata_collection_title");
+      checkPlan(
+          "extent filter",
+          "SELECT id FROM metadata_collection WHERE extent_box && box(point(0, 0), point(1, 1))",
+          "idx_metadata_collection_extent_box");
+    } catch (Exception e) {
+      log.warn("Could not check the query plans: {}", e.getMessage());
+      log.trace("Full stack trace: ", e);
+    }
+  }
+
+  private void checkPlan(String name, String query, String index) {
+    List<String> plan =
+        transactionTemplate.execute(
+            status -> {
+              jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+              return jdbcTemplate.queryForList("EXPLAIN " + query, String.class);
+            });
+
+    Pattern usesIndex = Pattern.compile("\\b" + index + "\\b");
+    if (plan != null && plan.stream().anyMatch(line -> usesIndex.matcher(line).find())) {
+      log.info("Query plan check passed: {} uses {}", name, index);
+    } else {
+      log.warn(
+          "Query plan check failed: {} does not use {}. Plan:\n{}",
+          name,
+          index,
+          plan == null ? "" : String.join("\n", plan));
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package de.terrestris.mde.mde_backend.startup;
 
+import de.terrestris.mde.mde_backend.properties.QueryProperties;
 import de.terrestris.mde.mde_backend.service.SearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -11,8 +12,14 @@ public class StartupTask {
 
   @Autowired private SearchService searchService;
 
+  @Autowired private QueryProperties queryProperties;
+
   @EventListener(ApplicationReadyEvent.class)
   public void onApplicationReady() {
-    searchService.reindexAll();
+    if (Boolean.TRUE.equals(queryProperties.getIndexRebuild())) {
+      searchService.reindexAll();
+    } else {
+      searchService.updateIndex();
+    }
   }
 }
@@ -0,0 +1,26 @@
+-- Stored copy of the ISO title, so it can be indexed and compared without extracting it from
+-- the JSON document on every query.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE metadata_collection
+    ADD COLUMN title TEXT GENERATED ALWAYS AS (iso_metadata->>'title') STORED;
+
+-- Substring search (lower(title) LIKE '%term%')
+CREATE INDEX idx_metadata_collection_title_trgm
+    ON metadata_collection USING GIN (lower(title) gin_trgm_ops);
+
+-- Exact match for the duplicate title check. Titles are unique by convention, existing
+-- duplicates have to be resolved manually before the index can be made unique.
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM metadata_collection
+        WHERE title IS NOT NULL
+        GROUP BY title HAVING count(*) > 1
+    ) THEN
+        RAISE WARNING 'Duplicate titles found in metadata_collection, creating a non-unique title index.';
+        CREATE INDEX idx_metadata_collection_title ON metadata_collection (title);
+    ELSE
+        CREATE UNIQUE INDEX idx_metadata_collection_title ON metadata_collection (title);
+    END IF;
+END $$;
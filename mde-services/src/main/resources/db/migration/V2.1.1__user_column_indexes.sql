@@ -0,0 +1,14 @@
+-- The btree on team_member_ids (created for responsible_user_ids) cannot serve containment
+-- checks, replace it with a GIN index.
+DROP INDEX IF EXISTS idx_metadata_collection_responsible_user_id;
+CREATE INDEX IF NOT EXISTS idx_metadata_collection_team_member_ids
+    ON metadata_collection USING GIN (team_member_ids);
+
+CREATE INDEX IF NOT EXISTS idx_metadata_collection_assigned_user_id
+    ON metadata_collection (assigned_user_id);
+CREATE INDEX IF NOT EXISTS idx_metadata_collection_responsible_role
+    ON metadata_collection (responsible_role);
+CREATE INDEX IF NOT EXISTS idx_metadata_collection_approved
+    ON metadata_collection (approved);
+CREATE INDEX IF NOT EXISTS idx_metadata_collection_status
+    ON metadata_collection (status);
@@ -0,0 +1,20 @@
+-- Stored bounding box of the ISO extent (WGS 84 longitude/latitude) for spatial filtering.
+-- Incomplete extents result in NULL.
+ALTER TABLE metadata_collection
+    ADD COLUMN extent_box BOX GENERATED ALWAYS AS (
+        CASE
+            WHEN iso_metadata #>> '{extent,minx}' IS NOT NULL
+                AND iso_metadata #>> '{extent,miny}' IS NOT NULL
+                AND iso_metadata #>> '{extent,maxx}' IS NOT NULL
+                AND iso_metadata #>> '{extent,maxy}' IS NOT NULL
+            THEN box(
+                point((iso_metadata #>> '{extent,minx}')::double precision,
+                      (iso_metadata #>> '{extent,miny}')::double precision),
+                point((iso_metadata #>> '{extent,maxx}')::double precision,
+                      (iso_metadata #>> '{extent,maxy}')::double precision))
+        END
+    ) STORED;
+
+-- Intersects (&&) and within (<@) queries
+CREATE INDEX idx_metadata_collection_extent_box
+    ON metadata_collection USING GIST (extent_box);
@@ -0,0 +1,25 @@
+-- Log of the changed metadata collections. Every backend instance polls it to apply the changes
+-- made by the other instances to its own search index. Old entries are removed by the backend.
+CREATE TABLE index_change_log (
+    id BIGSERIAL PRIMARY KEY,
+    metadata_collection_id BIGINT NOT NULL,
+    changed TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE INDEX idx_index_change_log_changed ON index_change_log (changed);
+
+CREATE OR REPLACE FUNCTION log_index_change()
+RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO index_change_log (metadata_collection_id) VALUES (OLD.id);
+    ELSE
+        INSERT INTO index_change_log (metadata_collection_id) VALUES (NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_metadata_collection_index_change
+    AFTER INSERT OR UPDATE OR DELETE ON metadata_collection
+    FOR EACH ROW EXECUTE FUNCTION log_index_change();
@@ -0,0 +1,54 @@
+-- The identifying fields of the services of all metadata collections, kept in sync with
+-- iso_metadata->'services' by a trigger. Allows index lookups instead of expanding the services
+-- array of every row.
+CREATE TABLE service_identity (
+    id BIGSERIAL PRIMARY KEY,
+    metadata_collection_id BIGINT NOT NULL REFERENCES metadata_collection (id) ON DELETE CASCADE,
+    metadata_id TEXT NOT NULL,
+    service_type TEXT,
+    workspace TEXT,
+    service_identification TEXT,
+    file_identifier TEXT
+);
+
+-- Not unique, as existing metadata may contain duplicates. New ones are rejected by the backend.
+CREATE INDEX idx_service_identity_type_workspace ON service_identity (service_type, workspace);
+CREATE INDEX idx_service_identity_metadata_collection_id ON service_identity (metadata_collection_id);
+CREATE INDEX idx_service_identity_service_identification ON service_identity (service_identification);
+CREATE INDEX idx_service_identity_file_identifier ON service_identity (file_identifier);
+
+CREATE OR REPLACE FUNCTION sync_service_identity()
+RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE'
+        AND NEW.iso_metadata->'services' IS NOT DISTINCT FROM OLD.iso_metadata->'services'
+        AND NEW.metadata_id = OLD.metadata_id THEN
+        RETURN NULL;
+    END IF;
+
+    DELETE FROM service_identity WHERE metadata_collection_id = NEW.id;
+
+    IF jsonb_typeof(NEW.iso_metadata->'services') = 'array' THEN
+        INSERT INTO service_identity
+            (metadata_collection_id, metadata_id, service_type, workspace, service_identification, file_identifier)
+        SELECT NEW.id, NEW.metadata_id, s->>'serviceType', s->>'workspace', s->>'serviceIdentification',
+               s->>'fileIdentifier'
+        FROM jsonb_array_elements(NEW.iso_metadata->'services') s
+        WHERE jsonb_typeof(s) = 'object';
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Deletions are handled by the foreign key
+CREATE TRIGGER trg_metadata_collection_service_identity
+    AFTER INSERT OR UPDATE OF iso_metadata, metadata_id ON metadata_collection
+    FOR EACH ROW EXECUTE FUNCTION sync_service_identity();
+
+INSERT INTO service_identity
+    (metadata_collection_id, metadata_id, service_type, workspace, service_identification, file_identifier)
+SELECT mc.id, mc.metadata_id, s->>'serviceType', s->>'workspace', s->>'serviceIdentification', s->>'fileIdentifier'
+FROM metadata_collection mc
+CROSS JOIN LATERAL jsonb_array_elements(
+    CASE WHEN jsonb_typeof(mc.iso_metadata->'services') = 'array' THEN mc.iso_metadata->'services' ELSE '[]' END) s
+WHERE jsonb_typeof(s) = 'object';
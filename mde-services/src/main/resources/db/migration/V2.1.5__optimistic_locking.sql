@@ -0,0 +1,18 @@
+-- Version for optimistic locking, incremented with every modification and exposed as ETag.
+ALTER TABLE metadata_collection ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Concurrent updates no longer run serializable, so the uniqueness of service types and workspaces
+-- is enforced by the index as well, unless existing metadata already contains duplicates.
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM service_identity
+        WHERE service_type IS NOT NULL AND workspace IS NOT NULL
+        GROUP BY service_type, workspace HAVING count(*) > 1
+    ) THEN
+        RAISE WARNING 'Duplicate services found in service_identity, keeping the non-unique index.';
+    ELSE
+        DROP INDEX idx_service_identity_type_workspace;
+        CREATE UNIQUE INDEX idx_service_identity_type_workspace ON service_identity (service_type, workspace);
+    END IF;
+END $$;
@@ -0,0 +1,5 @@
+-- Hibernate reserves blocks of 50 ids with a single call of the sequences (pooled optimizer), so
+-- inserts can be batched. The sequences have to be incremented by the same amount. Native inserts
+-- using the column defaults keep working, they just leave gaps.
+ALTER SEQUENCE metadata_collection_id_seq INCREMENT BY 50;
+ALTER SEQUENCE service_deletion_id_seq INCREMENT BY 50;
@@ -0,0 +1,40 @@
+package de.terrestris.mde.mde_backend.model.dto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.terrestris.mde.mde_backend.exception.InvalidCursorException;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class MetadataQueryCursorTest {
+
+  @Test
+  void testEncodeDecode() {
+    MetadataQueryCursor cursor =
+        new MetadataQueryCursor(
+            0,
+            OffsetDateTime.of(2025, 3, 1, 12, 30, 15, 123456000, ZoneOffset.UTC),
+            "Gewässer / Flüsse & Seen",
+            BigInteger.valueOf(42));
+
+    String encoded = cursor.encode();
+
+    assertTrue(encoded.matches("[A-Za-z0-9_-]+"), "Cursor should be URL safe");
+    assertEquals(cursor, MetadataQueryCursor.decode(encoded));
+  }
+
+  @Test
+  void testEncodeDecodeWithoutModifiedAndTitle() {
+    MetadataQueryCursor cursor = new MetadataQueryCursor(2, null, null, BigInteger.ONE);
+
+    assertEquals(cursor, MetadataQueryCursor.decode(cursor.encode()));
+  }
+
+  @Test
+  void testDecodeInvalid() {
+    assertThrows(InvalidCursorException.class, () -> MetadataQueryCursor.decode("not a cursor"));
+    assertThrows(InvalidCursorException.class, () -> MetadataQueryCursor.decode("e30"));
+  }
+}
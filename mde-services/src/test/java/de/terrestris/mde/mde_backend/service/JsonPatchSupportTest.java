@@ -0,0 +1,146 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.fge.jsonpatch.JsonPatchException;
+import de.terrestris.mde.mde_backend.enumeration.MetadataType;
+import de.terrestris.mde.mde_backend.model.dto.JsonPathUpdate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+class JsonPatchSupportTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void testSplit() {
+    Map<MetadataType, ArrayNode> operations =
+        JsonPatchSupport.split(
+            objectMapper.readTree(
+                """
+                [
+                  {"op": "replace", "path": "/isoMetadata/services/3/title", "value": "a"},
+                  {"op": "move", "from": "/clientMetadata/a/0", "path": "/clientMetadata/b~1c"},
+                  {"op": "remove", "path": "/isoMetadata/title"}
+                ]
+                """));
+
+    assertEquals(Set.of(MetadataType.ISO, MetadataType.CLIENT), operations.keySet());
+    ArrayNode iso = operations.get(MetadataType.ISO);
+    assertEquals(2, iso.size());
+    assertEquals("/services/3/title", iso.get(0).get("path").asString());
+    assertEquals("/title", iso.get(1).get("path").asString());
+    assertEquals(Set.of("services", "title"), JsonPatchSupport.keys(iso));
+
+    ArrayNode client = operations.get(MetadataType.CLIENT);
+    assertEquals("/a/0", client.get(0).get("from").asString());
+    assertEquals("/b~1c", client.get(0).get("path").asString());
+    assertEquals(Set.of("a", "b/c"), JsonPatchSupport.keys(client));
+  }
+
+  @Test
+  void testSplitRejectsInvalidPointers() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> JsonPatchSupport.split(objectMapper.readTree("{\"op\": \"remove\"}")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            JsonPatchSupport.split(
+                objectMapper.readTree("[{\"op\": \"remove\", \"path\": \"/status\"}]")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            JsonPatchSupport.split(
+                objectMapper.readTree(
+                    "[{\"op\": \"replace\", \"path\": \"/isoMetadata\", \"value\": {}}]")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            JsonPatchSupport.split(
+                objectMapper.readTree(
+                    "[{\"op\": \"copy\", \"from\": \"/isoMetadata/a\", \"path\":"
+                        + " \"/clientMetadata/a\"}]")));
+  }
+
+  @Test
+  void testApply() throws Exception {
+    ArrayNode operations =
+        (ArrayNode)
+            objectMapper.readTree(
+                """
+                [
+                  {"op": "test", "path": "/services/0/title", "value": "a"},
+                  {"op": "replace", "path": "/services/0/title", "value": "b"},
+                  {"op": "add", "path": "/services/-", "value": {"title": "c"}}
+                ]
+                """);
+    JsonNode document = objectMapper.readTree("{\"services\": [{\"title\": \"a\"}]}");
+
+    JsonNode patched = JsonPatchSupport.apply(operations, document, objectMapper);
+
+    assertEquals(
+        objectMapper.readTree("{\"services\": [{\"title\": \"b\"}, {\"title\": \"c\"}]}"), patched);
+    // the given document is left unchanged
+    assertEquals("a", document.at("/services/0/title").asString());
+
+    ArrayNode failing =
+        (ArrayNode)
+            objectMapper.readTree(
+                "[{\"op\": \"test\", \"path\": \"/services/0/title\", \"value\": 1}]");
+    assertThrows(
+        JsonPatchException.class, () -> JsonPatchSupport.apply(failing, document, objectMapper));
+  }
+
+  @Test
+  void testDiff() {
+    JsonNode previous =
+        objectMapper.readTree(
+            """
+            {"title": "a", "columns": [{"name": "x", "alias": "X"}, {"name": "y"}], "old": 1}
+            """);
+    JsonNode updated =
+        objectMapper.readTree(
+            """
+            {"title": "a", "columns": [{"name": "x", "alias": "Z"}, {"name": "y"}], "new": [1]}
+            """);
+    List<JsonPathUpdate> updates = new ArrayList<>();
+
+    JsonPatchSupport.diff(MetadataType.ISO, List.of("services"), previous, updated, updates);
+
+    assertEquals(
+        List.of(
+            new JsonPathUpdate(MetadataType.ISO, List.of("services", "old"), null),
+            new JsonPathUpdate(
+                MetadataType.ISO, List.of("services", "columns", "0", "alias"), "\"Z\""),
+            new JsonPathUpdate(MetadataType.ISO, List.of("services", "new"), "[1]")),
+        updates);
+  }
+
+  @Test
+  void testDiffReplacesResizedArrays() {
+    List<JsonPathUpdate> updates = new ArrayList<>();
+
+    JsonPatchSupport.diff(
+        MetadataType.CLIENT,
+        List.of("comments"),
+        objectMapper.readTree("[1, 2]"),
+        objectMapper.readTree("[2]"),
+        updates);
+    JsonPatchSupport.diff(
+        MetadataType.CLIENT, List.of("layers"), objectMapper.readTree("{}"), null, updates);
+    JsonPatchSupport.diff(MetadataType.CLIENT, List.of("missing"), null, null, updates);
+
+    assertEquals(
+        List.of(
+            new JsonPathUpdate(MetadataType.CLIENT, List.of("comments"), "[2]"),
+            new JsonPathUpdate(MetadataType.CLIENT, List.of("layers"), null)),
+        updates);
+  }
+}
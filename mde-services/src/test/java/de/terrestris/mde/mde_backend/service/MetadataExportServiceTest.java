@@ -0,0 +1,37 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MetadataExportServiceTest {
+
+  @Test
+  void testCsvQuoting() {
+    assertEquals("plain", MetadataExportService.toCsv("plain"));
+    assertEquals("\"a,b\"", MetadataExportService.toCsv("a,b"));
+    assertEquals("\"say \"\"hi\"\"\"", MetadataExportService.toCsv("say \"hi\""));
+    assertEquals("\"two\nlines\"", MetadataExportService.toCsv("two\nlines"));
+  }
+
+  @Test
+  void testPointer() {
+    assertEquals("/metadataId", MetadataExportService.toPointer("metadataId"));
+    assertEquals(
+        "/isoMetadata/extent/minx", MetadataExportService.toPointer("isoMetadata.extent.minx"));
+  }
+
+  @Test
+  void testValidateFields() {
+    assertDoesNotThrow(() -> MetadataExportService.validateFields(null));
+    assertDoesNotThrow(
+        () -> MetadataExportService.validateFields(List.of("metadataId", "isoMetadata.title")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MetadataExportService.validateFields(List.of("isoMetadata/title")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MetadataExportService.validateFields(List.of("isoMetadata..title")));
+  }
+}
@@ -0,0 +1,41 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import de.terrestris.mde.mde_backend.model.dto.sse.ReindexMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class ReindexJobTest {
+
+  @Test
+  void testProgress() {
+    List<ReindexMessage> messages = new ArrayList<>();
+    ReindexJob job = new ReindexJob(messages::add);
+    assertNull(job.toMessage().getTotal());
+
+    job.addToTotalCount(10);
+    job.documentsAdded(4);
+    job.documentsAdded(4);
+    job.finish(JobStatus.FINISHED, "done");
+
+    // the first progress is reported immediately, the second one is throttled
+    assertEquals(2, messages.size());
+    ReindexMessage result = messages.getLast();
+    assertEquals(10L, result.getTotal());
+    assertEquals(8, result.getIndexed());
+    assertTrue(result.getEntitiesPerSecond() > 0);
+  }
+
+  @Test
+  void testCancel() {
+    ReindexJob job = new ReindexJob(message -> {});
+    assertTrue(job.cancel());
+    // a cancel requested before the indexing started cancels it right away
+    assertThrows(CancellationException.class, () -> job.await(new CompletableFuture<>()));
+  }
+}
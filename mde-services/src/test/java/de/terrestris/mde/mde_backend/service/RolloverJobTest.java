@@ -0,0 +1,31 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.terrestris.mde.mde_backend.model.dto.sse.RolloverMessage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RolloverJobTest {
+
+  @Test
+  void testProgress() {
+    List<RolloverMessage> messages = new ArrayList<>();
+    RolloverJob job = new RolloverJob(messages::add);
+    assertNull(job.toMessage().getTotal());
+
+    job.setTotal(80);
+    job.batchDone(50, 48);
+    job.batchDone(30, 30);
+
+    // the total and every batch are reported
+    assertEquals(3, messages.size());
+    assertEquals(50, messages.get(1).getProcessed());
+    RolloverMessage result = messages.getLast();
+    assertEquals(80L, result.getTotal());
+    assertEquals(80, result.getProcessed());
+    assertEquals(78, result.getCloned());
+    assertEquals(2, result.getSkipped());
+  }
+}
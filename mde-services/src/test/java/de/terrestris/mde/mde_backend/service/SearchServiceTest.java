@@ -0,0 +1,37 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchServiceTest {
+
+  @TempDir Path root;
+
+  @Test
+  void testIndexState() throws IOException {
+    Path file = root.resolve("indices").resolve(SearchService.STATE_FILE);
+    assertEquals(Optional.empty(), SearchService.IndexState.read(file));
+
+    SearchService.IndexState state =
+        new SearchService.IndexState(OffsetDateTime.parse("2025-03-01T12:30:00.123+01:00"), "abc");
+    state.write(file);
+    assertEquals(Optional.of(state), SearchService.IndexState.read(file));
+
+    Files.writeString(file, "modified=yesterday");
+    assertEquals(Optional.empty(), SearchService.IndexState.read(file));
+  }
+
+  @Test
+  void testHash() {
+    assertEquals(64, SearchService.hash("mapping").length());
+    assertEquals(SearchService.hash("mapping"), SearchService.hash("mapping"));
+    assertNotEquals(SearchService.hash("mapping"), SearchService.hash("mapping2"));
+  }
+}
@@ -0,0 +1,71 @@
+package de.terrestris.mde.mde_backend.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import de.terrestris.mde.mde_backend.enumeration.JobStatus;
+import de.terrestris.mde.mde_backend.model.dto.sse.JobMessage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TrackedJobTest {
+
+  static class TestMessage extends JobMessage {}
+
+  static class TestJob extends TrackedJob<TestMessage> {
+
+    private int cancelled;
+
+    TestJob(List<TestMessage> messages) {
+      super("started", messages::add);
+    }
+
+    @Override
+    void onCancel() {
+      cancelled++;
+    }
+
+    @Override
+    TestMessage newMessage() {
+      return new TestMessage();
+    }
+  }
+
+  @Test
+  void testFinish() {
+    List<TestMessage> messages = new ArrayList<>();
+    TestJob job = new TestJob(messages);
+    TestMessage running = job.toMessage();
+    assertEquals(JobStatus.RUNNING, running.getStatus());
+    assertEquals("started", running.getMessage());
+    assertNotNull(running.getStarted());
+    assertNull(running.getFinished());
+    assertTrue(messages.isEmpty());
+
+    job.finish(JobStatus.FINISHED, "done");
+
+    // the status change is passed on to the listener
+    assertEquals(1, messages.size());
+    TestMessage result = messages.getLast();
+    assertEquals(JobStatus.FINISHED, result.getStatus());
+    assertEquals("done", result.getMessage());
+    assertEquals(running.getStarted(), result.getStarted());
+    assertNotNull(result.getFinished());
+    assertFalse(job.isRunning());
+  }
+
+  @Test
+  void testCancel() {
+    TestJob job = new TestJob(new ArrayList<>());
+    assertFalse(job.isCancelRequested());
+    assertTrue(job.cancel());
+    assertTrue(job.isCancelRequested());
+    assertEquals(1, job.cancelled);
+    // the job keeps running until it is finished by the caller
+    assertTrue(job.isRunning());
+
+    job.finish(JobStatus.CANCELLED, "cancelled");
+    assertFalse(job.cancel());
+    assertEquals(1, job.cancelled);
+  }
+}
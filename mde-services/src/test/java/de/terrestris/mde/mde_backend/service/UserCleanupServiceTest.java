@@ -4,7 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import de.terrestris.mde.mde_backend.jpa.MetadataCollectionRepository;
-import de.terrestris.mde.mde_backend.model.MetadataCollection;
+import de.terrestris.mde.mde_backend.model.dto.MetadataUserReferences;
 import de.terrestris.mde.mde_backend.model.dto.UserDetails;
 import de.terrestris.mde.mde_backend.thread.TrackingExecutorService;
 import java.util.HashSet;
@@ -21,7 +21,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 @ExtendWith(MockitoExtension.class)
 class UserCleanupServiceTest {
 
-  @Mock private MetadataCollectionRepository metadataCollectionRepository;
+  @Mock private MetadataCollectionRepository repository;
+
+  @Mock private MetadataCollectionWorkflowService workflowService;
 
   @Mock private TrackingExecutorService trackingExecutorService;
 
@@ -44,7 +46,7 @@ class UserCleanupServiceTest {
 
   @Test
   void testRemoveUserNoChanges() {
-    MetadataCollection mc =
+    MetadataUserReferences mc =
         createMetadataCollection(
             "6d7b8f3b-09f0-4ad6-be07-f327031d6358",
             "valid-user-1",
@@ -54,12 +56,12 @@ class UserCleanupServiceTest {
     Optional<UserCleanupService.CollectionCleanupRecord> result = invokeRemoveUser(mc, validUsers);
 
     assertTrue(result.isEmpty(), "No changes should be made when all users are valid");
-    verify(metadataCollectionRepository, never()).save(any());
+    verify(workflowService, never()).removeUsers(any(), any());
   }
 
   @Test
   void testRemoveUserOwnerRemoved() {
-    MetadataCollection mc =
+    MetadataUserReferences mc =
         createMetadataCollection(
             "7583fc0a-b943-47eb-bdf4-756f84477af8",
             "stale-owner",
@@ -73,13 +75,12 @@ class UserCleanupServiceTest {
     assertEquals("stale-owner", record.removedOwnerId());
     assertNull(record.removedAssignedUserId());
     assertTrue(record.removedTeamMemberIds().isEmpty());
-    assertNull(mc.getOwnerId());
-    verify(metadataCollectionRepository).save(mc);
+    verify(workflowService).removeUsers(mc.metadataId(), Set.of("stale-owner"));
   }
 
   @Test
   void testRemoveUserAssignedUserRemoved() {
-    MetadataCollection mc =
+    MetadataUserReferences mc =
         createMetadataCollection(
             "b0fb3ed0-7638-4b0a-9338-f5b7238d276c",
             "valid-user-1",
@@ -93,13 +94,12 @@ class UserCleanupServiceTest {
     assertNull(record.removedOwnerId());
     assertEquals("stale-assigned", record.removedAssignedUserId());
     assertTrue(record.removedTeamMemberIds().isEmpty());
-    assertNull(mc.getAssignedUserId());
-    verify(metadataCollectionRepository).save(mc);
+    verify(workflowService).removeUsers(mc.metadataId(), Set.of("stale-assigned"));
   }
 
   @Test
   void testRemoveUserTeamMembersRemoved() {
-    MetadataCollection mc =
+    MetadataUserReferences mc =
         createMetadataCollection(
             "fc3612c1-bf16-4d7b-b0fc-a653d1c14bdb",
             "valid-user-1",
@@ -115,14 +115,13 @@ class UserCleanupServiceTest {
     assertEquals(2, record.removedTeamMemberIds().size());
     assertTrue(
         record.removedTeamMemberIds().containsAll(List.of("stale-member-1", "stale-member-2")));
-    assertEquals(1, mc.getTeamMemberIds().size());
-    assertTrue(mc.getTeamMemberIds().contains("valid-user-1"));
-    verify(metadataCollectionRepository).save(mc);
+    verify(workflowService)
+        .removeUsers(mc.metadataId(), Set.of("stale-member-1", "stale-member-2"));
   }
 
   @Test
   void testRemoveUserMultipleChanges() {
-    MetadataCollection mc =
+    MetadataUserReferences mc =
         createMetadataCollection(
             "ac06147c-0043-426b-9dcf-0651496d4df6",
             "stale-owner",
@@ -137,20 +136,22 @@ class UserCleanupServiceTest {
     assertEquals("stale-assigned", record.removedAssignedUserId());
     assertEquals(2, record.removedTeamMemberIds().size());
     assertTrue(record.hasChanges());
-    verify(metadataCollectionRepository).save(mc);
+    verify(workflowService)
+        .removeUsers(
+            mc.metadataId(),
+            Set.of("stale-owner", "stale-assigned", "stale-team-1", "stale-team-2"));
   }
 
   @Test
   void testRemoveUserNullTeamMembers() {
-    MetadataCollection mc = new MetadataCollection();
-    mc.setOwnerId("valid-user-1");
-    mc.setAssignedUserId("valid-user-2");
-    mc.setTeamMemberIds(null);
+    MetadataUserReferences mc =
+        new MetadataUserReferences(
+            null, "3c2a5f0e-5d0c-4a38-9a34-0f1c6d0f8e61", "valid-user-1", "valid-user-2", null);
 
     Optional<UserCleanupService.CollectionCleanupRecord> result = invokeRemoveUser(mc, validUsers);
 
     assertTrue(result.isEmpty());
-    verify(metadataCollectionRepository, never()).save(any());
+    verify(workflowService, never()).removeUsers(any(), any());
   }
 
   @Test
@@ -160,22 +161,18 @@ class UserCleanupServiceTest {
     verify(trackingExecutorService).submit(any(Runnable.class));
   }
 
-  private MetadataCollection createMetadataCollection(
+  private MetadataUserReferences createMetadataCollection(
       String metadataUuid, String ownerId, String assignedUserId, Set<String> teamMemberIds) {
-    MetadataCollection mc = new MetadataCollection();
-    mc.setMetadataId(metadataUuid);
-    mc.setOwnerId(ownerId);
-    mc.setAssignedUserId(assignedUserId);
-    mc.setTeamMemberIds(new HashSet<>(teamMemberIds));
-    return mc;
+    return new MetadataUserReferences(
+        null, metadataUuid, ownerId, assignedUserId, new HashSet<>(teamMemberIds));
   }
 
   private Optional<UserCleanupService.CollectionCleanupRecord> invokeRemoveUser(
-      MetadataCollection mc, List<UserDetails> users) {
+      MetadataUserReferences mc, List<UserDetails> users) {
     try {
       var method =
           UserCleanupService.class.getDeclaredMethod(
-              "removeUser", MetadataCollection.class, List.class);
+              "removeUser", MetadataUserReferences.class, List.class);
       method.setAccessible(true);
       @SuppressWarnings("unchecked")
       Optional<UserCleanupService.CollectionCleanupRecord> result =